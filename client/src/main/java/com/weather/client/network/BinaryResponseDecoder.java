@@ -0,0 +1,204 @@
+package com.weather.client.network;
+
+import com.weather.client.model.DayDetailData;
+import com.weather.client.model.WeatherData;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the server's binary forecast encoding (see the server's BinaryResponseWriter).
+ *
+ * Layout (big-endian): version u8 | kind u8 | dictionary (u8 count + modified-UTF-8 strings) | body.
+ * Strings in the body are u8 dictionary indexes (0xFF = null), series carry one absolute
+ * i64 timestamp followed by i32 deltas.
+ */
+final class BinaryResponseDecoder {
+    static final int VERSION = 1;
+    static final int KIND_CURRENT = 1;
+    static final int KIND_DAY_DETAIL = 2;
+
+    private static final int NULL_STRING = 0xFF;
+    private static final int HAS_WIND_GUST = 0x01;
+    private static final int HAS_WEATHER = 0x02;
+    private static final int HAS_TEMP_RANGE = 0x04;
+
+    private BinaryResponseDecoder() {
+    }
+
+    static WeatherData decodeWeather(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String[] dictionary = readHeader(in, KIND_CURRENT);
+
+        WeatherData weatherData = new WeatherData();
+        weatherData.setCity(string(dictionary, in.readUnsignedByte()));
+        weatherData.setTimezone(string(dictionary, in.readUnsignedByte()));
+
+        WeatherData.CurrentWeather current = new WeatherData.CurrentWeather();
+        int presence = in.readUnsignedByte();
+        current.setTemp(in.readFloat());
+        current.setFeelsLike(in.readFloat());
+        current.setHumidity(in.readUnsignedByte());
+        current.setPressure(in.readFloat());
+        current.setWindSpeed(in.readFloat());
+        current.setWindDeg(in.readUnsignedShort());
+        if ((presence & HAS_WIND_GUST) != 0) {
+            current.setWindGust((double) in.readFloat());
+        }
+        current.setTimestamp(in.readLong());
+        current.setUvi(in.readFloat());
+        current.setVisibility(in.readInt());
+        if ((presence & HAS_WEATHER) != 0) {
+            current.setWeather(readCondition(in, dictionary));
+        }
+        if ((presence & HAS_TEMP_RANGE) != 0) {
+            WeatherData.TempRange tempRange = new WeatherData.TempRange();
+            tempRange.setMin(in.readFloat());
+            tempRange.setMax(in.readFloat());
+            WeatherDataValidator.fixTempRange(tempRange);
+            current.setTempRange(tempRange);
+        }
+        WeatherDataValidator.fixCurrent(current);
+        weatherData.setCurrent(current);
+
+        int hourlyCount = in.readUnsignedByte();
+        long timestamp = hourlyCount > 0 ? in.readLong() : 0;
+        List<WeatherData.HourlyForecast> hourly = new ArrayList<>(hourlyCount);
+        for (int i = 0; i < hourlyCount; i++) {
+            WeatherData.HourlyForecast entry = new WeatherData.HourlyForecast();
+            timestamp += in.readInt();
+            entry.setTimestamp(timestamp);
+            entry.setTemp(in.readFloat());
+            entry.setPop(in.readFloat());
+            entry.setWeather(readCondition(in, dictionary));
+            if (WeatherDataValidator.fixHourly(entry)) {
+                hourly.add(entry);
+            }
+        }
+        if (!hourly.isEmpty()) {
+            weatherData.setHourly(hourly.toArray(new WeatherData.HourlyForecast[0]));
+        }
+
+        int dailyCount = in.readUnsignedByte();
+        timestamp = dailyCount > 0 ? in.readLong() : 0;
+        List<WeatherData.DailyForecast> daily = new ArrayList<>(dailyCount);
+        for (int i = 0; i < dailyCount; i++) {
+            WeatherData.DailyForecast entry = new WeatherData.DailyForecast();
+            timestamp += in.readInt();
+            entry.setTimestamp(timestamp);
+            entry.setTempMin(in.readFloat());
+            entry.setTempMax(in.readFloat());
+            entry.setPop(in.readFloat());
+            entry.setHumidity(in.readUnsignedByte());
+            entry.setRain(in.readFloat());
+            entry.setWeather(readCondition(in, dictionary));
+            if (WeatherDataValidator.fixDaily(entry)) {
+                daily.add(entry);
+            }
+        }
+        if (!daily.isEmpty()) {
+            weatherData.setDaily(daily.toArray(new WeatherData.DailyForecast[0]));
+        }
+        return weatherData;
+    }
+
+    static DayDetailData decodeDayDetail(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String[] dictionary = readHeader(in, KIND_DAY_DETAIL);
+
+        DayDetailData detailData = new DayDetailData();
+
+        DayDetailData.DayData day = new DayDetailData.DayData();
+        day.setTimestamp(in.readLong());
+        day.setTempMin(in.readFloat());
+        day.setTempMax(in.readFloat());
+        day.setTempAvg(in.readFloat());
+        day.setHumidity(in.readUnsignedByte());
+        day.setPop(in.readFloat());
+        day.setRain(in.readFloat());
+        day.setWeather(readDayCondition(in, dictionary));
+        detailData.setDay(day);
+
+        if (in.readBoolean()) {
+            int count = in.readUnsignedByte();
+            long timestamp = count > 0 ? in.readLong() : 0;
+            DayDetailData.HourlyData[] hourly = new DayDetailData.HourlyData[count];
+            for (int i = 0; i < count; i++) {
+                DayDetailData.HourlyData entry = new DayDetailData.HourlyData();
+                timestamp += in.readInt();
+                entry.setTimestamp(timestamp);
+                entry.setTemp(in.readFloat());
+                entry.setPop(in.readFloat());
+                entry.setHumidity(in.readUnsignedByte());
+                entry.setWeather(readDayCondition(in, dictionary));
+                hourly[i] = entry;
+            }
+            detailData.setHourly(hourly);
+        }
+
+        if (in.readBoolean()) {
+            DayDetailData.TodayData today = new DayDetailData.TodayData();
+            today.setTempAvg(in.readFloat());
+            today.setHumidity(in.readUnsignedByte());
+            today.setRain(in.readFloat());
+            detailData.setToday(today);
+        }
+        return detailData;
+    }
+
+    private static String[] readHeader(DataInputStream in, int expectedKind) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary response version: " + version);
+        }
+        int kind = in.readUnsignedByte();
+        if (kind != expectedKind) {
+            throw new IOException("Unexpected binary response kind: " + kind);
+        }
+        String[] dictionary = new String[in.readUnsignedByte()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = in.readUTF();
+        }
+        return dictionary;
+    }
+
+    private static WeatherData.WeatherCondition readCondition(DataInputStream in, String[] dictionary) throws IOException {
+        String main = string(dictionary, in.readUnsignedByte());
+        String description = string(dictionary, in.readUnsignedByte());
+        String icon = string(dictionary, in.readUnsignedByte());
+        if (main == null && description == null && icon == null) {
+            return null;
+        }
+        WeatherData.WeatherCondition weather = new WeatherData.WeatherCondition();
+        weather.setMain(main);
+        weather.setDescription(description);
+        weather.setIcon(icon);
+        return weather;
+    }
+
+    private static DayDetailData.WeatherCondition readDayCondition(DataInputStream in, String[] dictionary) throws IOException {
+        String main = string(dictionary, in.readUnsignedByte());
+        in.readUnsignedByte(); // Description is not sent for day detail
+        String icon = string(dictionary, in.readUnsignedByte());
+        if (main == null && icon == null) {
+            return null;
+        }
+        DayDetailData.WeatherCondition weather = new DayDetailData.WeatherCondition();
+        weather.setMain(main);
+        weather.setIcon(icon);
+        return weather;
+    }
+
+    private static String string(String[] dictionary, int index) throws IOException {
+        if (index == NULL_STRING) {
+            return null;
+        }
+        if (index >= dictionary.length) {
+            throw new IOException("Invalid dictionary index: " + index);
+        }
+        return dictionary[index];
+    }
+}
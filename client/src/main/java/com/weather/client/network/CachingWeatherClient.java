@@ -0,0 +1,289 @@
+package com.weather.client.network;
+
+import com.weather.client.model.DayDetailData;
+import com.weather.client.model.WeatherData;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Client-side cache in front of WeatherClientNetwork, keyed by city and by (city, day).
+ *
+ * Entries age from the observation time of the forecast they came with (current.timestamp),
+ * not from when they were received. An entry is fresh for weather.client.cache.freshSeconds
+ * (default 10 minutes), then stale but still worth showing for weather.client.cache.maxStaleSeconds
+ * (default 3 hours) while a refresh runs in the background.
+ * Refreshes of the same key are coalesced.
+ *
+ * Forecasts are also written to a ForecastStore. A city missing from memory is read back
+ * from disk by loadCachedWeatherAsync, so a cold start shows the last-known forecast before
+ * the first refresh, and getLastKnownWeather offers it when the server cannot be reached.
+ */
+public class CachingWeatherClient {
+    private static final long DEFAULT_FRESH_SECONDS = 600; // Matches the server's forecast TTL
+    private static final long DEFAULT_MAX_STALE_SECONDS = 3 * 3600;
+    private static final long MIN_FRESH_MS = 60000;
+    private static final int MAX_ENTRIES = 64;
+    private static final long DEFAULT_MAX_OFFLINE_HOURS = 48; // Daily forecasts still cover days ahead
+
+    private final WeatherClientNetwork network;
+    private final ForecastStore store;
+    private final long freshMillis;
+    private final long maxStaleMillis;
+    private final long maxOfflineMillis;
+    private final Map<String, Cached<?>> entries;
+    private final Map<String, CompletableFuture<?>> refreshing = new ConcurrentHashMap<>();
+    private final ExecutorService storeExecutor = newStoreExecutor();
+
+    public CachingWeatherClient(WeatherClientNetwork network) {
+        this(network, ForecastStore.createDefault());
+    }
+
+    /**
+     * @param store on-disk store for forecasts, or null to keep them in memory only
+     */
+    public CachingWeatherClient(WeatherClientNetwork network, ForecastStore store) {
+        this.network = network;
+        this.store = store;
+        this.freshMillis = Long.getLong("weather.client.cache.freshSeconds", DEFAULT_FRESH_SECONDS) * 1000;
+        this.maxStaleMillis = Long.getLong("weather.client.cache.maxStaleSeconds", DEFAULT_MAX_STALE_SECONDS) * 1000;
+        this.maxOfflineMillis = Long.getLong("weather.client.store.maxAgeHours", DEFAULT_MAX_OFFLINE_HOURS) * 3600000;
+        this.entries = new LinkedHashMap<String, Cached<?>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached<?>> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    /**
+     * Forecast for the city held in memory, fresh or stale, or null if there is none worth showing.
+     * Never reads the ForecastStore, so it is cheap enough for the EDT.
+     */
+    public Cached<WeatherData> getCachedWeather(String city) {
+        return lookup(weatherKey(city));
+    }
+
+    /**
+     * Forecast for the city, fresh or stale, falling back to the ForecastStore on a background
+     * thread when it is not in memory. Completes with null if there is none worth showing.
+     */
+    public CompletableFuture<Cached<WeatherData>> loadCachedWeatherAsync(String city) {
+        Cached<WeatherData> cached = getCachedWeather(city);
+        if (cached != null || store == null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return CompletableFuture.supplyAsync(() -> loadCachedWeather(city), storeExecutor);
+    }
+
+    /**
+     * Last forecast stored for the city even if too old to be shown normally
+     * (up to weather.client.store.maxAgeHours), for when the server cannot be reached.
+     * May read the ForecastStore, so call it off the EDT.
+     */
+    public Cached<WeatherData> getLastKnownWeather(String city) {
+        Cached<WeatherData> cached = loadCachedWeather(city);
+        if (cached != null || store == null) {
+            return cached;
+        }
+        WeatherData stored = store.load(city);
+        if (stored == null) {
+            return null;
+        }
+        long observedAt = observedAt(stored);
+        if (System.currentTimeMillis() - observedAt > maxOfflineMillis) {
+            return null;
+        }
+        return new Cached<>(stored, observedAt, observedAt, observedAt + maxOfflineMillis);
+    }
+
+    /**
+     * Cached detail for the city and day, fresh or stale, or null if there is none worth showing
+     */
+    public Cached<DayDetailData> getCachedDayDetail(String city, long dayTimestamp) {
+        return lookup(detailKey(city, dayTimestamp));
+    }
+
+    /**
+     * Fetch the forecast from the server and cache it. Cancelling the returned future
+     * only detaches the caller; the fetch still completes and fills the cache.
+     */
+    public CompletableFuture<WeatherData> refreshWeatherAsync(String city) {
+        return refresh(weatherKey(city), () -> network.requestWeatherAsync(city), data -> {
+            if (store != null) {
+                store.save(city, data);
+            }
+            return observedAt(data);
+        });
+    }
+
+    /**
+     * Fetch a day detail from the server and cache it. It ages with the city's cached
+     * forecast, since both come from the same upstream forecast.
+     */
+    public CompletableFuture<DayDetailData> refreshDayDetailAsync(String city, long dayTimestamp) {
+        return refresh(detailKey(city, dayTimestamp), () -> network.requestDayDetailAsync(city, dayTimestamp),
+                data -> {
+                    Cached<WeatherData> forecast = loadCachedWeather(city);
+                    return forecast != null ? forecast.getObservedAt() : System.currentTimeMillis();
+                });
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Memory first, then the ForecastStore; blocks on disk
+     */
+    private Cached<WeatherData> loadCachedWeather(String city) {
+        Cached<WeatherData> cached = lookup(weatherKey(city));
+        if (cached != null || store == null) {
+            return cached;
+        }
+        WeatherData stored = store.load(city);
+        if (stored == null) {
+            return null;
+        }
+        // Aged purely by its observation time, so a forecast from a previous session is stale
+        long observedAt = observedAt(stored);
+        long freshUntil = observedAt + freshMillis;
+        cached = new Cached<>(stored, observedAt, freshUntil, freshUntil + maxStaleMillis);
+        if (System.currentTimeMillis() >= cached.expiresAt) {
+            return null;
+        }
+        synchronized (entries) {
+            entries.putIfAbsent(weatherKey(city), cached);
+        }
+        return cached;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Cached<T> lookup(String key) {
+        Cached<T> cached;
+        synchronized (entries) {
+            cached = (Cached<T>) entries.get(key);
+        }
+        if (cached == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= cached.expiresAt) {
+            synchronized (entries) {
+                entries.remove(key, cached);
+            }
+            return null;
+        }
+        return cached;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> refresh(String key, Supplier<CompletableFuture<T>> fetch,
+                                             Function<T, Long> observedAt) {
+        CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<T> shared = (CompletableFuture<T>) refreshing.putIfAbsent(key, created);
+        if (shared == null) {
+            shared = created;
+            fetch.get().whenComplete((data, error) -> {
+                if (error == null && data != null) {
+                    store(key, data, observedAt.apply(data));
+                }
+                refreshing.remove(key, created);
+                if (error != null) {
+                    created.completeExceptionally(error);
+                } else {
+                    created.complete(data);
+                }
+            });
+        }
+        // A dependent stage, so one caller cancelling cannot fail the fetch for the others
+        return shared.thenApply(data -> data);
+    }
+
+    private <T> void store(String key, T data, long observedAt) {
+        long now = System.currentTimeMillis();
+        long freshUntil = Math.max(now + MIN_FRESH_MS, observedAt + freshMillis);
+        Cached<T> cached = new Cached<>(data, observedAt, freshUntil, freshUntil + maxStaleMillis);
+        synchronized (entries) {
+            entries.put(key, cached);
+        }
+    }
+
+    /**
+     * One daemon thread for reading stored forecasts, let go when idle
+     */
+    private static ExecutorService newStoreExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "weather-client-store");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static long observedAt(WeatherData data) {
+        if (data.getCurrent() != null && data.getCurrent().getTimestamp() > 0) {
+            return data.getCurrent().getTimestamp() * 1000;
+        }
+        return System.currentTimeMillis();
+    }
+
+    private static String weatherKey(String city) {
+        return "C|" + normalize(city);
+    }
+
+    private static String detailKey(String city, long dayTimestamp) {
+        return "D|" + normalize(city) + "|" + dayTimestamp / 86400;
+    }
+
+    private static String normalize(String city) {
+        return city.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A cached value and how old it is
+     */
+    public static final class Cached<T> {
+        private final T data;
+        private final long observedAt;
+        private final long freshUntil;
+        private final long expiresAt;
+
+        Cached(T data, long observedAt, long freshUntil, long expiresAt) {
+            this.data = data;
+            this.observedAt = observedAt;
+            this.freshUntil = freshUntil;
+            this.expiresAt = expiresAt;
+        }
+
+        public T getData() {
+            return data;
+        }
+
+        /**
+         * Observation time of the forecast this came from, in epoch milliseconds
+         */
+        public long getObservedAt() {
+            return observedAt;
+        }
+
+        /**
+         * False once the data is old enough that it should be refreshed
+         */
+        public boolean isFresh() {
+            return System.currentTimeMillis() < freshUntil;
+        }
+    }
+}
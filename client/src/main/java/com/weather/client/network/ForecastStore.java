@@ -0,0 +1,91 @@
+package com.weather.client.network;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.weather.client.model.WeatherData;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Last-known forecast per city on disk, one small gzipped JSON file per city, so the client
+ * can show something at cold start and while the server is unreachable.
+ * Files are replaced atomically, so a crash mid-write never leaves a torn forecast behind.
+ */
+public class ForecastStore {
+    private static final String SUFFIX = ".json.gz";
+
+    private final Path directory;
+    private final Gson gson = new Gson();
+
+    public ForecastStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Store under weather.client.storeDir, by default ~/.weather-client/forecasts
+     */
+    public static ForecastStore createDefault() {
+        String dir = System.getProperty("weather.client.storeDir",
+                Paths.get(System.getProperty("user.home"), ".weather-client", "forecasts").toString());
+        return new ForecastStore(Paths.get(dir));
+    }
+
+    public void save(String city, WeatherData data) {
+        Path target = fileFor(city);
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, "forecast", ".tmp");
+            try (Writer writer = new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8)) {
+                gson.toJson(data, writer);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not save forecast for " + city + ": " + e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Best effort
+                }
+            }
+        }
+    }
+
+    /**
+     * Last stored forecast for the city, or null if there is none or it cannot be read
+     */
+    public WeatherData load(String city) {
+        Path file = fileFor(city);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8)) {
+            WeatherData data = gson.fromJson(reader, WeatherData.class);
+            return data != null && data.getCurrent() != null ? data : null;
+        } catch (IOException | JsonParseException e) {
+            System.err.println("Ignoring unreadable forecast file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Path fileFor(String city) {
+        String key = city.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return directory.resolve(URLEncoder.encode(key, StandardCharsets.UTF_8) + SUFFIX);
+    }
+}
@@ -0,0 +1,123 @@
+package com.weather.client.network;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Collects the fragments of one response and rebuilds the payload.
+ *
+ * Each datagram starts with the server's 12-byte big-endian header:
+ * magic "WF" (2) | version (1) | flags (1) | requestId (4) | fragment index (2) | fragment count (2)
+ */
+public class FragmentAssembler {
+    static final int HEADER_SIZE = 12;
+    private static final byte MAGIC_0 = 'W';
+    private static final byte MAGIC_1 = 'F';
+    private static final byte VERSION = 1;
+
+    private final int requestId;
+    private byte[][] fragments;
+    private int received;
+    private int flags;
+
+    public FragmentAssembler(int requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * Request id of a response datagram, or -1 if it is not a valid fragment
+     */
+    public static int readRequestId(byte[] data, int length) {
+        if (length < HEADER_SIZE || data[0] != MAGIC_0 || data[1] != MAGIC_1 || data[2] != VERSION) {
+            return -1;
+        }
+        return readInt(data, 4);
+    }
+
+    /**
+     * Store a datagram if it belongs to this response
+     *
+     * @return true if the datagram was a new fragment of this response
+     */
+    public boolean accept(byte[] data, int length) {
+        if (readRequestId(data, length) != requestId) {
+            return false;
+        }
+        
+        int index = readShort(data, 8);
+        int count = readShort(data, 10);
+        if (count == 0 || index >= count) {
+            return false;
+        }
+        if (fragments == null) {
+            fragments = new byte[count][];
+            flags = data[3] & 0xFF;
+        } else if (fragments.length != count) {
+            return false;
+        }
+        if (fragments[index] != null) {
+            return false;
+        }
+        
+        byte[] chunk = new byte[length - HEADER_SIZE];
+        System.arraycopy(data, HEADER_SIZE, chunk, 0, chunk.length);
+        fragments[index] = chunk;
+        received++;
+        return true;
+    }
+
+    public boolean hasAny() {
+        return received > 0;
+    }
+
+    public boolean isComplete() {
+        return fragments != null && received == fragments.length;
+    }
+
+    /**
+     * Indexes of the fragments not received yet
+     */
+    public int[] missing() {
+        if (fragments == null) {
+            return new int[0];
+        }
+        int[] missing = new int[fragments.length - received];
+        int n = 0;
+        for (int i = 0; i < fragments.length; i++) {
+            if (fragments[i] == null) {
+                missing[n++] = i;
+            }
+        }
+        return missing;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Concatenated payload; only valid once isComplete() is true
+     */
+    public byte[] payload() {
+        if (!isComplete()) {
+            throw new IllegalStateException("Response incomplete: " + received + "/" 
+                    + (fragments == null ? "?" : fragments.length) + " fragments");
+        }
+        if (fragments.length == 1) {
+            return fragments[0];
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] fragment : fragments) {
+            out.write(fragment, 0, fragment.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+
+    private static int readShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+}
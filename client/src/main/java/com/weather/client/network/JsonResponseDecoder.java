@@ -0,0 +1,514 @@
+package com.weather.client.network;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.weather.client.model.DayDetailData;
+import com.weather.client.model.WeatherData;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes JSON responses ({"success", "error", "data"}) straight into the client models
+ * in one streaming pass, without building an intermediate tree or boxing numbers.
+ *
+ * Unknown fields are skipped; fields of the wrong type read as 0 or null, as the old
+ * map-based parser did.
+ */
+final class JsonResponseDecoder {
+    private JsonResponseDecoder() {
+    }
+
+    static WeatherData decodeWeather(byte[] payload) throws IOException {
+        return decode(payload, JsonResponseDecoder::readWeather);
+    }
+
+    static DayDetailData decodeDayDetail(byte[] payload) throws IOException {
+        return decode(payload, JsonResponseDecoder::readDayDetail);
+    }
+
+    /**
+     * retryAfterMs of a "server busy" reply, or 0 if it has none
+     */
+    static long decodeRetryAfter(byte[] payload) throws IOException {
+        try (JsonReader in = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(payload), StandardCharsets.UTF_8))) {
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("retryAfterMs".equals(in.nextName())) {
+                    return Math.max(0, (long) number(in));
+                }
+                in.skipValue();
+            }
+            return 0;
+        } catch (IllegalStateException | NumberFormatException | MalformedJsonException | EOFException e) {
+            throw new IOException("Invalid response from server", e);
+        }
+    }
+
+    private interface DataReader<T> {
+        T read(JsonReader in) throws IOException;
+    }
+
+    /**
+     * Read the response envelope, decoding "data" with dataReader.
+     * A response with success=false becomes an IOException carrying the server's error.
+     */
+    private static <T> T decode(byte[] payload, DataReader<T> dataReader) throws IOException {
+        boolean success = false;
+        String error = null;
+        T data = null;
+        try (JsonReader in = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(payload), StandardCharsets.UTF_8))) {
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "success":
+                        if (in.peek() == JsonToken.BOOLEAN) {
+                            success = in.nextBoolean();
+                        } else {
+                            in.skipValue();
+                        }
+                        break;
+                    case "error":
+                        error = string(in);
+                        break;
+                    case "data":
+                        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                            data = dataReader.read(in);
+                        } else {
+                            in.skipValue();
+                        }
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+        } catch (IllegalStateException | NumberFormatException | MalformedJsonException | EOFException e) {
+            // Wrong structure, bad number or truncated payload
+            throw new IOException("Invalid response from server", e);
+        }
+        if (!success) {
+            throw new IOException(error != null ? error : "Unknown error");
+        }
+        return data;
+    }
+
+    private static WeatherData readWeather(JsonReader in) throws IOException {
+        WeatherData weatherData = new WeatherData();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "city":
+                    weatherData.setCity(string(in));
+                    break;
+                case "timezone":
+                    weatherData.setTimezone(string(in));
+                    break;
+                case "current":
+                    weatherData.setCurrent(isObject(in) ? readCurrent(in) : null);
+                    break;
+                case "hourly":
+                    weatherData.setHourly(readHourlyForecasts(in));
+                    break;
+                case "daily":
+                    weatherData.setDaily(readDailyForecasts(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        // Validate and ensure data completeness
+        if (weatherData.getCurrent() == null) {
+            System.err.println("WARNING: No current weather data");
+            return null;
+        }
+        if (weatherData.getHourly() == null) {
+            System.err.println("WARNING: No hourly forecast data");
+        } else {
+            System.out.println("✓ Parsed " + weatherData.getHourly().length + " hourly forecasts");
+        }
+        if (weatherData.getDaily() == null) {
+            System.err.println("WARNING: No daily forecast data");
+        } else {
+            System.out.println("✓ Parsed " + weatherData.getDaily().length + " daily forecasts");
+        }
+        return weatherData;
+    }
+
+    private static WeatherData.CurrentWeather readCurrent(JsonReader in) throws IOException {
+        WeatherData.CurrentWeather current = new WeatherData.CurrentWeather();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "temp":
+                    current.setTemp(number(in));
+                    break;
+                case "feelsLike":
+                    current.setFeelsLike(number(in));
+                    break;
+                case "humidity":
+                    current.setHumidity((int) number(in));
+                    break;
+                case "pressure":
+                    current.setPressure(number(in));
+                    break;
+                case "windSpeed":
+                    current.setWindSpeed(number(in));
+                    break;
+                case "windDeg":
+                    current.setWindDeg((int) number(in));
+                    break;
+                case "windGust":
+                    current.setWindGust(in.peek() == JsonToken.NUMBER ? in.nextDouble() : skipAsNull(in));
+                    break;
+                case "timestamp":
+                    current.setTimestamp(timestamp(in));
+                    break;
+                case "uvi":
+                    current.setUvi(number(in));
+                    break;
+                case "visibility":
+                    current.setVisibility((int) number(in));
+                    break;
+                case "weather":
+                    current.setWeather(isObject(in) ? readCondition(in) : null);
+                    break;
+                case "tempRange":
+                    if (isObject(in)) {
+                        WeatherData.TempRange tempRange = readTempRange(in);
+                        WeatherDataValidator.fixTempRange(tempRange);
+                        current.setTempRange(tempRange);
+                    }
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        WeatherDataValidator.fixCurrent(current);
+        return current;
+    }
+
+    private static WeatherData.TempRange readTempRange(JsonReader in) throws IOException {
+        WeatherData.TempRange tempRange = new WeatherData.TempRange();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "min":
+                    tempRange.setMin(number(in));
+                    break;
+                case "max":
+                    tempRange.setMax(number(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return tempRange;
+    }
+
+    /**
+     * Hourly entries that pass validation, or null if there are none
+     */
+    private static WeatherData.HourlyForecast[] readHourlyForecasts(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return null;
+        }
+        List<WeatherData.HourlyForecast> valid = new ArrayList<>(48);
+        in.beginArray();
+        while (in.hasNext()) {
+            if (!isObject(in)) {
+                continue;
+            }
+            WeatherData.HourlyForecast hourly = new WeatherData.HourlyForecast();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "timestamp":
+                        hourly.setTimestamp(timestamp(in));
+                        break;
+                    case "temp":
+                        hourly.setTemp(number(in));
+                        break;
+                    case "pop":
+                        hourly.setPop(number(in));
+                        break;
+                    case "weather":
+                        hourly.setWeather(isObject(in) ? readCondition(in) : null);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            if (WeatherDataValidator.fixHourly(hourly)) {
+                valid.add(hourly);
+            }
+        }
+        in.endArray();
+        return valid.isEmpty() ? null : valid.toArray(new WeatherData.HourlyForecast[0]);
+    }
+
+    /**
+     * Daily entries that pass validation, or null if there are none
+     */
+    private static WeatherData.DailyForecast[] readDailyForecasts(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return null;
+        }
+        List<WeatherData.DailyForecast> valid = new ArrayList<>(8);
+        in.beginArray();
+        while (in.hasNext()) {
+            if (!isObject(in)) {
+                continue;
+            }
+            WeatherData.DailyForecast daily = new WeatherData.DailyForecast();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "timestamp":
+                        daily.setTimestamp(timestamp(in));
+                        break;
+                    case "tempMin":
+                        daily.setTempMin(number(in));
+                        break;
+                    case "tempMax":
+                        daily.setTempMax(number(in));
+                        break;
+                    case "pop":
+                        daily.setPop(number(in));
+                        break;
+                    case "humidity":
+                        daily.setHumidity((int) number(in));
+                        break;
+                    case "rain":
+                        daily.setRain(number(in));
+                        break;
+                    case "weather":
+                        daily.setWeather(isObject(in) ? readCondition(in) : null);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            if (WeatherDataValidator.fixDaily(daily)) {
+                valid.add(daily);
+            }
+        }
+        in.endArray();
+        return valid.isEmpty() ? null : valid.toArray(new WeatherData.DailyForecast[0]);
+    }
+
+    private static WeatherData.WeatherCondition readCondition(JsonReader in) throws IOException {
+        WeatherData.WeatherCondition weather = new WeatherData.WeatherCondition();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "main":
+                    weather.setMain(string(in));
+                    break;
+                case "description":
+                    weather.setDescription(string(in));
+                    break;
+                case "icon":
+                    weather.setIcon(string(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return weather;
+    }
+
+    private static DayDetailData readDayDetail(JsonReader in) throws IOException {
+        DayDetailData detailData = new DayDetailData();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "day":
+                    detailData.setDay(isObject(in) ? readDay(in) : null);
+                    break;
+                case "hourly":
+                    detailData.setHourly(readDetailHourly(in));
+                    break;
+                case "today":
+                    detailData.setToday(isObject(in) ? readToday(in) : null);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return detailData;
+    }
+
+    private static DayDetailData.DayData readDay(JsonReader in) throws IOException {
+        DayDetailData.DayData day = new DayDetailData.DayData();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "timestamp":
+                    day.setTimestamp(timestamp(in));
+                    break;
+                case "tempMin":
+                    day.setTempMin(number(in));
+                    break;
+                case "tempMax":
+                    day.setTempMax(number(in));
+                    break;
+                case "tempAvg":
+                    day.setTempAvg(number(in));
+                    break;
+                case "humidity":
+                    day.setHumidity((int) number(in));
+                    break;
+                case "pop":
+                    day.setPop(number(in));
+                    break;
+                case "rain":
+                    day.setRain(number(in));
+                    break;
+                case "weather":
+                    day.setWeather(isObject(in) ? readDetailCondition(in) : null);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return day;
+    }
+
+    private static DayDetailData.HourlyData[] readDetailHourly(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return null;
+        }
+        List<DayDetailData.HourlyData> entries = new ArrayList<>(24);
+        in.beginArray();
+        while (in.hasNext()) {
+            if (!isObject(in)) {
+                continue;
+            }
+            DayDetailData.HourlyData hourly = new DayDetailData.HourlyData();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "timestamp":
+                        hourly.setTimestamp(timestamp(in));
+                        break;
+                    case "temp":
+                        hourly.setTemp(number(in));
+                        break;
+                    case "pop":
+                        hourly.setPop(number(in));
+                        break;
+                    case "humidity":
+                        hourly.setHumidity((int) number(in));
+                        break;
+                    case "weather":
+                        hourly.setWeather(isObject(in) ? readDetailCondition(in) : null);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            entries.add(hourly);
+        }
+        in.endArray();
+        return entries.toArray(new DayDetailData.HourlyData[0]);
+    }
+
+    private static DayDetailData.TodayData readToday(JsonReader in) throws IOException {
+        DayDetailData.TodayData today = new DayDetailData.TodayData();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "tempAvg":
+                    today.setTempAvg(number(in));
+                    break;
+                case "humidity":
+                    today.setHumidity((int) number(in));
+                    break;
+                case "rain":
+                    today.setRain(number(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return today;
+    }
+
+    private static DayDetailData.WeatherCondition readDetailCondition(JsonReader in) throws IOException {
+        DayDetailData.WeatherCondition weather = new DayDetailData.WeatherCondition();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "main":
+                    weather.setMain(string(in));
+                    break;
+                case "icon":
+                    weather.setIcon(string(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return weather;
+    }
+
+    /**
+     * True if the next value is an object; anything else is skipped
+     */
+    private static boolean isObject(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+            return true;
+        }
+        in.skipValue();
+        return false;
+    }
+
+    private static double number(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NUMBER) {
+            return in.nextDouble();
+        }
+        in.skipValue();
+        return 0.0;
+    }
+
+    private static long timestamp(JsonReader in) throws IOException {
+        return (long) number(in);
+    }
+
+    private static String string(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            return in.nextString();
+        }
+        in.skipValue();
+        return null;
+    }
+
+    private static Double skipAsNull(JsonReader in) throws IOException {
+        in.skipValue();
+        return null;
+    }
+}
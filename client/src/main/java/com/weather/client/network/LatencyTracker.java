@@ -0,0 +1,42 @@
+package com.weather.client.network;
+
+import java.util.Arrays;
+
+/**
+ * Response latencies of the most recent requests, for percentile estimates
+ */
+public class LatencyTracker {
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    public LatencyTracker(int window) {
+        this.samples = new long[window];
+    }
+
+    public synchronized void record(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * Latency below which the given fraction of recent requests completed, or -1 with fewer
+     * than minSamples recorded
+     */
+    public synchronized long percentile(double fraction, int minSamples) {
+        if (count < Math.max(1, minSamples)) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,47 @@
+package com.weather.client.network;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Inflates deflated response payloads with one reusable Inflater per thread
+ */
+final class PayloadInflater {
+    private static final int MAX_INFLATED_SIZE = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    private PayloadInflater() {
+    }
+
+    /**
+     * Inflate a zlib payload, rejecting corrupt data and anything larger than MAX_INFLATED_SIZE
+     */
+    static byte[] inflate(byte[] deflated) throws IOException {
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(deflated);
+        byte[] out = new byte[Math.max(1024, deflated.length * 4)];
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (length == out.length) {
+                    if (out.length >= MAX_INFLATED_SIZE) {
+                        throw new IOException("Inflated response exceeds " + MAX_INFLATED_SIZE + " bytes");
+                    }
+                    out = Arrays.copyOf(out, Math.min(out.length * 2, MAX_INFLATED_SIZE));
+                }
+                int n = inflater.inflate(out, length, out.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed response");
+                }
+                length += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed response", e);
+        }
+        return Arrays.copyOf(out, length);
+    }
+}
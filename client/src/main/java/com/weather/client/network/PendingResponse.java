@@ -0,0 +1,67 @@
+package com.weather.client.network;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A request waiting for its response. The receiver thread feeds it fragments;
+ * the sending thread watches it for gaps and NACKs them.
+ * Once a fragment has arrived, only fragments from the same server are taken, since
+ * another server's copy of the response need not be split the same way.
+ */
+final class PendingResponse {
+    private final FragmentAssembler assembler;
+    private final CompletableFuture<RawResponse> future = new CompletableFuture<>();
+    private ServerNode source;
+    private long lastFragmentAt;
+
+    PendingResponse(int requestId) {
+        this.assembler = new FragmentAssembler(requestId);
+    }
+
+    /**
+     * Called from a receiver thread with a datagram carrying this request's id
+     */
+    synchronized void accept(ServerNode from, byte[] data, int length) {
+        if (future.isDone() || source != null && from != source || !assembler.accept(data, length)) {
+            return;
+        }
+        source = from;
+        lastFragmentAt = System.currentTimeMillis();
+        if (assembler.isComplete()) {
+            future.complete(new RawResponse(assembler.payload(), assembler.getFlags()));
+        }
+    }
+
+    synchronized boolean hasAny() {
+        return assembler.hasAny();
+    }
+
+    /**
+     * Server the response is coming from, or null before the first fragment
+     */
+    synchronized ServerNode source() {
+        return source;
+    }
+
+    synchronized int[] missing() {
+        return assembler.missing();
+    }
+
+    /**
+     * Milliseconds since the last new fragment arrived
+     */
+    synchronized long sinceLastFragment() {
+        return System.currentTimeMillis() - lastFragmentAt;
+    }
+
+    /**
+     * Restart the gap timer, e.g. after sending a NACK
+     */
+    synchronized void touch() {
+        lastFragmentAt = System.currentTimeMillis();
+    }
+
+    CompletableFuture<RawResponse> future() {
+        return future;
+    }
+}
@@ -0,0 +1,51 @@
+package com.weather.client.network;
+
+/**
+ * Reassembled response payload and the flags from its fragment headers
+ */
+final class RawResponse {
+    /** Payload is zlib-deflated */
+    static final int FLAG_DEFLATE = 0x01;
+    /** Payload uses the server's binary encoding instead of JSON */
+    static final int FLAG_BINARY = 0x02;
+    /** The server was too busy to process the request; the payload says when to retry */
+    static final int FLAG_BUSY = 0x04;
+
+    private final byte[] payload;
+    private final int flags;
+
+    RawResponse(byte[] payload, int flags) {
+        this.payload = payload;
+        this.flags = flags;
+    }
+
+    byte[] getPayload() {
+        return payload;
+    }
+
+    int getFlags() {
+        return flags;
+    }
+
+    boolean isDeflated() {
+        return (flags & FLAG_DEFLATE) != 0;
+    }
+
+    /**
+     * This response with its payload inflated, or itself if it was not compressed
+     */
+    RawResponse inflated() throws java.io.IOException {
+        if (!isDeflated()) {
+            return this;
+        }
+        return new RawResponse(PayloadInflater.inflate(payload), flags & ~FLAG_DEFLATE);
+    }
+
+    boolean isBinary() {
+        return (flags & FLAG_BINARY) != 0;
+    }
+
+    boolean isBusy() {
+        return (flags & FLAG_BUSY) != 0;
+    }
+}
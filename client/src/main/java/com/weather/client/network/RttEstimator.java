@@ -0,0 +1,94 @@
+package com.weather.client.network;
+
+/**
+ * Smoothed round-trip time and variance for one server, computed as in TCP (RFC 6298).
+ *
+ * The retransmission timeout is SRTT + 4 * RTTVAR, clamped to [MIN_RTO_MS, MAX_RTO_MS].
+ * Each timeout doubles it until the next valid sample arrives. Samples come only from
+ * requests answered without a retransmission, so they are never ambiguous (Karn's rule).
+ */
+public class RttEstimator {
+    static final long INITIAL_RTO_MS = 1000;
+    static final long MIN_RTO_MS = 200;
+    static final long MAX_RTO_MS = 8000;
+    private static final int MAX_BACKOFF_SHIFT = 6;
+
+    private double smoothedRtt = -1;
+    private double rttVariance;
+    private int backoffShift;
+    private long samples;
+    private long timeouts;
+
+    /**
+     * Add a round trip measured on a request that was sent exactly once
+     */
+    public synchronized void recordSample(long rttMillis) {
+        double rtt = Math.max(0, rttMillis);
+        if (smoothedRtt < 0) {
+            smoothedRtt = rtt;
+            rttVariance = rtt / 2;
+        } else {
+            rttVariance = 0.75 * rttVariance + 0.25 * Math.abs(smoothedRtt - rtt);
+            smoothedRtt = 0.875 * smoothedRtt + 0.125 * rtt;
+        }
+        backoffShift = 0;
+        samples++;
+    }
+
+    /**
+     * Back off after a request went unanswered for a full timeout. Requests in flight
+     * together that time out on the same RTO back off only once.
+     */
+    public synchronized void recordTimeout(long expiredRtoMillis) {
+        timeouts++;
+        if (expiredRtoMillis < getRetransmitTimeoutMillis()) {
+            return;
+        }
+        if (backoffShift < MAX_BACKOFF_SHIFT) {
+            backoffShift++;
+        }
+    }
+
+    /**
+     * Drop any backoff, e.g. once the server has been taken out of rotation; backoff built
+     * up against a server that was down says nothing about the path once it is back
+     */
+    public synchronized void resetBackoff() {
+        backoffShift = 0;
+    }
+
+    /**
+     * Current retransmission timeout, including any backoff
+     */
+    public synchronized long getRetransmitTimeoutMillis() {
+        long base = smoothedRtt < 0
+                ? INITIAL_RTO_MS
+                : Math.max(MIN_RTO_MS, Math.round(smoothedRtt + 4 * rttVariance));
+        return Math.min(MAX_RTO_MS, base << backoffShift);
+    }
+
+    /**
+     * Smoothed round trip in milliseconds, or -1 before the first sample
+     */
+    public synchronized double getSmoothedRttMillis() {
+        return smoothedRtt;
+    }
+
+    public synchronized double getRttVarianceMillis() {
+        return rttVariance;
+    }
+
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    public synchronized long getTimeouts() {
+        return timeouts;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("srtt=%.1fms rttvar=%.1fms rto=%dms samples=%d timeouts=%d",
+                smoothedRtt, rttVariance, getRetransmitTimeoutMillis(), samples, timeouts);
+    }
+}
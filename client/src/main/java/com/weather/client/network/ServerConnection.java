@@ -0,0 +1,210 @@
+package com.weather.client.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Long-lived connected DatagramChannel to one server, with its own receiver thread.
+ *
+ * The host name is resolved once and re-resolved only after refreshMillis, or after
+ * invalidate() when requests start timing out. If the address has changed, a channel
+ * connected to the new address replaces the old one, which is closed; anything still in
+ * flight on it is recovered by the normal retransmission.
+ */
+public class ServerConnection implements AutoCloseable {
+    private static final int SOCKET_BUFFER_SIZE = 256 * 1024; // Room for many responses in flight
+
+    /**
+     * Receives every datagram from the server, on the connection's receiver thread
+     */
+    public interface Receiver {
+        void onDatagram(byte[] data, int length);
+    }
+
+    private final String host;
+    private final int port;
+    private final long refreshMillis;
+    private final int bufferSize;
+    private final Receiver receiver;
+
+    private DatagramChannel channel;
+    private InetSocketAddress address;
+    private long resolvedAt;
+    private boolean resolving;
+    private boolean closed;
+
+    public ServerConnection(String host, int port, long refreshMillis, int bufferSize, Receiver receiver) {
+        this.host = host;
+        this.port = port;
+        this.refreshMillis = refreshMillis;
+        this.bufferSize = bufferSize;
+        this.receiver = receiver;
+    }
+
+    public void send(byte[] data) throws IOException {
+        DatagramChannel target = channel();
+        // An interrupt during a channel write closes the channel for every request. Async
+        // requests are never interrupted; this keeps an interrupt already pending on a
+        // caller's thread from reaching the write.
+        boolean interrupted = Thread.interrupted();
+        try {
+            target.write(ByteBuffer.wrap(data));
+        } catch (PortUnreachableException e) {
+            // ICMP from an earlier datagram; the request is retransmitted as usual
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Re-resolve the host before the next send, e.g. after a timeout
+     */
+    public synchronized void invalidate() {
+        resolvedAt = 0;
+    }
+
+    /**
+     * Address currently in use, or null before the first send
+     */
+    public synchronized InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public void close() {
+        DatagramChannel toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = channel;
+            channel = null;
+        }
+        closeQuietly(toClose);
+    }
+
+    /**
+     * The open channel, resolving and reconnecting first if the address is due a refresh.
+     * The lookup runs outside the lock; while one thread re-resolves, others keep sending
+     * on the current channel.
+     */
+    private DatagramChannel channel() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Client closed");
+            }
+            boolean open = channel != null && channel.isOpen();
+            if (open && (resolving || System.currentTimeMillis() - resolvedAt < refreshMillis)) {
+                return channel;
+            }
+            resolving = true;
+        }
+
+        InetSocketAddress resolved = null;
+        UnknownHostException failure = null;
+        try {
+            resolved = new InetSocketAddress(InetAddress.getByName(host), port);
+        } catch (UnknownHostException e) {
+            failure = e;
+        } finally {
+            synchronized (this) {
+                resolving = false;
+            }
+        }
+        return connect(resolved, failure);
+    }
+
+    /**
+     * Switch to the freshly resolved address, or keep the current channel if it has not
+     * changed or could not be resolved
+     */
+    private synchronized DatagramChannel connect(InetSocketAddress resolved, UnknownHostException failure)
+            throws IOException {
+        if (closed) {
+            throw new IOException("Client closed");
+        }
+        long now = System.currentTimeMillis();
+        boolean open = channel != null && channel.isOpen();
+        if (failure != null) {
+            if (open) {
+                // Keep talking to the last known address until the name resolves again
+                System.err.println("Could not re-resolve " + host + ": " + failure.getMessage());
+                resolvedAt = now;
+                return channel;
+            }
+            throw failure;
+        }
+        resolvedAt = now;
+        if (open && resolved.equals(address)) {
+            return channel;
+        }
+
+        DatagramChannel opened = DatagramChannel.open();
+        try {
+            opened.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_SIZE);
+            opened.connect(resolved);
+        } catch (IOException e) {
+            closeQuietly(opened);
+            throw e;
+        }
+        Thread receiverThread = new Thread(() -> receiveLoop(opened), "weather-client-receiver-" + host);
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+
+        if (address != null && !resolved.equals(address)) {
+            System.out.println("Server " + host + " moved from " + address + " to " + resolved);
+        }
+        DatagramChannel old = channel;
+        channel = opened;
+        address = resolved;
+        closeQuietly(old);
+        return opened;
+    }
+
+    private void receiveLoop(DatagramChannel source) {
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        while (source.isOpen()) {
+            try {
+                buffer.clear();
+                int length = source.read(buffer);
+                if (length > 0) {
+                    receiver.onDatagram(buffer.array(), length);
+                }
+            } catch (PortUnreachableException e) {
+                // Server not listening right now; requests time out and retry
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (source.isOpen()) {
+                    System.err.println("Error receiving response: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(DatagramChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to do with it
+        }
+    }
+}
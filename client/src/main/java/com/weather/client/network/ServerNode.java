@@ -0,0 +1,143 @@
+package com.weather.client.network;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One server in the pool: its connection, its own round-trip estimate, how many
+ * requests are outstanding on it, and whether it is currently ejected.
+ *
+ * A server is ejected after EJECT_AFTER_FAILURES request timeouts in a row with nothing
+ * heard from it for at least EJECT_AFTER_SILENCE_MS, so a burst of requests timing out
+ * together on a slow but working server does not eject it. An ejection lasts
+ * BASE_EJECTION_MS, doubled on each ejection in a row up to MAX_EJECTION_MS.
+ * When it runs out the server is used again on probation: one more timeout ejects it
+ * again, the first answer clears its record.
+ *
+ * A server that answered "busy" is also skipped, until the retry time it gave.
+ */
+public class ServerNode implements AutoCloseable {
+    private static final int EJECT_AFTER_FAILURES = 3;
+    private static final long EJECT_AFTER_SILENCE_MS = 3000;
+    private static final long BASE_EJECTION_MS = 5000;
+    private static final long MAX_EJECTION_MS = 60000;
+    private static final int MAX_EJECTION_SHIFT = 4;
+
+    private final ServerConnection connection;
+    private final RttEstimator rttEstimator = new RttEstimator();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile long lastHeardAt = System.currentTimeMillis();
+    private int consecutiveFailures;
+    private int ejections;
+    private long ejectedUntil;
+    private long busyUntil;
+
+    ServerNode(String host, int port, long resolveIntervalMillis, int bufferSize, ServerPool.Router router) {
+        this.connection = new ServerConnection(host, port, resolveIntervalMillis, bufferSize,
+                (data, length) -> {
+                    lastHeardAt = System.currentTimeMillis();
+                    router.route(this, data, length);
+                });
+    }
+
+    void send(byte[] data) throws IOException {
+        connection.send(data);
+    }
+
+    /**
+     * Round-trip estimates for this server
+     */
+    public RttEstimator getRttEstimator() {
+        return rttEstimator;
+    }
+
+    /**
+     * Requests currently waiting on this server
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public synchronized boolean isEjected() {
+        return System.currentTimeMillis() < ejectedUntil;
+    }
+
+    synchronized boolean isAvailable(long now) {
+        return now >= ejectedUntil && now >= busyUntil;
+    }
+
+    /**
+     * When the server may be used again, or a time in the past if it can be used now
+     */
+    synchronized long getAvailableAt() {
+        return Math.max(ejectedUntil, busyUntil);
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    /**
+     * The server answered a request
+     */
+    synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        ejections = 0;
+        ejectedUntil = 0;
+    }
+
+    /**
+     * The server is overloaded and asked for no requests before retryAfterMillis from now.
+     * It is alive, so this does not count towards ejection.
+     */
+    synchronized void recordBusy(long retryAfterMillis) {
+        busyUntil = Math.max(busyUntil, System.currentTimeMillis() + retryAfterMillis);
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Look the name up again before the next send, in case the server moved
+     */
+    void invalidateAddress() {
+        connection.invalidate();
+    }
+
+    /**
+     * A request sent to this server got nothing back within its retransmission timeout,
+     * and was answered by another server or not at all
+     */
+    void recordFailure(long expiredRtoMillis) {
+        rttEstimator.recordTimeout(expiredRtoMillis);
+        // The server may have moved; look the name up again before the next send
+        connection.invalidate();
+        long ejectionMs;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now < ejectedUntil || ++consecutiveFailures < EJECT_AFTER_FAILURES
+                    || now - lastHeardAt < EJECT_AFTER_SILENCE_MS) {
+                return;
+            }
+            ejectionMs = Math.min(MAX_EJECTION_MS, BASE_EJECTION_MS << Math.min(ejections, MAX_EJECTION_SHIFT));
+            ejections++;
+            ejectedUntil = now + ejectionMs;
+            // On probation once the ejection ends
+            consecutiveFailures = EJECT_AFTER_FAILURES - 1;
+        }
+        rttEstimator.resetBackoff();
+        System.err.println("Server " + this + " ejected for " + ejectionMs + "ms after repeated timeouts");
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+    }
+
+    @Override
+    public String toString() {
+        return connection.getHost() + ":" + connection.getPort();
+    }
+}
@@ -0,0 +1,135 @@
+package com.weather.client.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The servers a client may send to, given as "host[:port],host[:port],...".
+ *
+ * Requests are spread by power of two choices: two random available servers are
+ * compared and the one with fewer requests outstanding wins, which keeps load even
+ * without any coordination and steers away from a slow server as its requests pile up.
+ * Ejected and busy servers are skipped until they may be used again; if none is
+ * available, the one coming back soonest is used.
+ */
+public class ServerPool implements AutoCloseable {
+
+    /**
+     * Receives every datagram along with the server it came from
+     */
+    interface Router {
+        void route(ServerNode from, byte[] data, int length);
+    }
+
+    private final List<ServerNode> nodes;
+
+    ServerPool(String servers, int defaultPort, long resolveIntervalMillis, int bufferSize, Router router) {
+        List<ServerNode> parsed = new ArrayList<>();
+        for (String entry : servers.split(",")) {
+            String server = entry.trim();
+            if (server.isEmpty()) {
+                continue;
+            }
+            String host = server;
+            String port = null;
+            if (server.startsWith("[")) {
+                // Bracketed IPv6 literal, optionally followed by :port
+                int close = server.indexOf(']');
+                host = server.substring(1, close);
+                if (server.length() > close + 1 && server.charAt(close + 1) == ':') {
+                    port = server.substring(close + 2);
+                }
+            } else if (server.indexOf(':') > 0 && server.indexOf(':') == server.lastIndexOf(':')) {
+                host = server.substring(0, server.indexOf(':'));
+                port = server.substring(server.indexOf(':') + 1);
+            }
+            parsed.add(new ServerNode(host, parsePort(port, defaultPort, server), resolveIntervalMillis,
+                    bufferSize, router));
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("No servers in '" + servers + "'");
+        }
+        this.nodes = Collections.unmodifiableList(parsed);
+    }
+
+    private static int parsePort(String port, int defaultPort, String server) {
+        if (port == null) {
+            return defaultPort;
+        }
+        try {
+            return Integer.parseInt(port);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port in server " + server, e);
+        }
+    }
+
+    public List<ServerNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Server for the next transmission, preferring one other than exclude
+     * (the server that just failed to answer, or the one a hedge is backing up)
+     */
+    ServerNode pick(ServerNode exclude) {
+        if (nodes.size() == 1) {
+            return nodes.get(0);
+        }
+        long now = System.currentTimeMillis();
+        List<ServerNode> candidates = new ArrayList<>(nodes.size());
+        for (ServerNode node : nodes) {
+            if (node != exclude && node.isAvailable(now)) {
+                candidates.add(node);
+            }
+        }
+        if (candidates.isEmpty() && exclude != null && exclude.isAvailable(now)) {
+            return exclude;
+        }
+        if (candidates.isEmpty()) {
+            ServerNode soonest = nodes.get(0);
+            for (ServerNode node : nodes) {
+                if (node.getAvailableAt() < soonest.getAvailableAt()) {
+                    soonest = node;
+                }
+            }
+            return soonest;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServerNode a = candidates.get(first);
+        ServerNode b = candidates.get(second);
+        return a.getOutstanding() <= b.getOutstanding() ? a : b;
+    }
+
+    @Override
+    public void close() {
+        for (ServerNode node : nodes) {
+            node.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (ServerNode node : nodes) {
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(node).append(' ').append(node.getRttEstimator())
+                    .append(" outstanding=").append(node.getOutstanding());
+            if (node.isEjected()) {
+                sb.append(" EJECTED");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -1,507 +1,478 @@
 package com.weather.client.network;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
 import com.weather.client.model.DayDetailData;
 import com.weather.client.model.WeatherData;
 
 import java.io.IOException;
-import java.net.*;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class WeatherClientNetwork {
+public class WeatherClientNetwork implements AutoCloseable {
     private static final int DEFAULT_PORT = 8888;
     private static final String DEFAULT_HOST = "localhost";
-    private static final int TIMEOUT_MS = 5000; // Reduced from 10s to 5s
-    private static final int MAX_RETRIES = 2; // Reduced from 3 to 2
+    private static final int REQUEST_TIMEOUT_MS = 10000; // Give up on a request after this long
     private static final int BUFFER_SIZE = 16384; // Increased for larger responses
+    private static final int FRAGMENT_GAP_MS = 300; // Wait this long for the next fragment before NACKing
+    private static final int MAX_NACKS = 3;
+    private static final long DEFAULT_RESOLVE_INTERVAL_SECONDS = 60; // Follow DNS changes without a restart
+    private static final int ASYNC_THREADS = 4;
+    private static final int ASYNC_QUEUE_SIZE = 64;
+    private static final int LATENCY_WINDOW = 256;
+    private static final int MIN_HEDGE_SAMPLES = 20; // Don't hedge on a guess
+    private static final long MIN_HEDGE_DELAY_MS = 10;
+    private static final int MAX_BUSY_BACKOFF_SHIFT = 3;
 
-    private final String serverHost;
-    private final int serverPort;
+    private final ServerPool servers;
     private final Gson gson;
+    private final boolean binaryEncoding;
+    private final boolean deflate;
+    private final AtomicInteger nextRequestId = new AtomicInteger(new java.util.Random().nextInt(Integer.MAX_VALUE));
+    private final Map<Integer, PendingResponse> pendingResponses = new ConcurrentHashMap<>();
+    private final ExecutorService asyncExecutor = newAsyncExecutor();
+    private final LatencyTracker latencies = new LatencyTracker(LATENCY_WINDOW);
+    private final boolean hedging;
+    private final AtomicLong hedgesSent = new AtomicLong();
 
+    /**
+     * Client for the servers listed in weather.servers ("host[:port],..."), by default localhost
+     */
     public WeatherClientNetwork() {
-        this(DEFAULT_HOST, DEFAULT_PORT);
+        this(System.getProperty("weather.servers", DEFAULT_HOST + ":" + DEFAULT_PORT));
     }
 
     public WeatherClientNetwork(String serverHost, int serverPort) {
-        this.serverHost = serverHost;
-        this.serverPort = serverPort;
+        this(serverHost.indexOf(':') >= 0 ? "[" + serverHost + "]:" + serverPort : serverHost + ":" + serverPort);
+    }
+
+    /**
+     * Client spreading requests over several servers, given as "host[:port],host[:port],..."
+     */
+    public WeatherClientNetwork(String servers) {
+        long resolveInterval = Long.getLong("weather.client.resolveIntervalSeconds", DEFAULT_RESOLVE_INTERVAL_SECONDS);
+        this.servers = new ServerPool(servers, DEFAULT_PORT, resolveInterval * 1000, BUFFER_SIZE, this::route);
         this.gson = new Gson();
+        // BINARY (default) fits a full forecast in one datagram; JSON is kept for debugging
+        this.binaryEncoding = !"JSON".equalsIgnoreCase(System.getProperty("weather.client.encoding", "BINARY"));
+        this.deflate = !"NONE".equalsIgnoreCase(System.getProperty("weather.client.compression", "DEFLATE"));
+        this.hedging = Boolean.getBoolean("weather.client.hedge");
     }
 
     /**
      * Request current weather for a city
      */
     public WeatherData requestWeather(String city) throws IOException {
-        String requestJson = gson.toJson(new Request("CURRENT", city, null));
-        String responseJson = sendRequest(requestJson);
-        
-        Response response = gson.fromJson(responseJson, Response.class);
-        
-        if (!response.success) {
-            throw new IOException(response.error != null ? response.error : "Unknown error");
+        return requestWeather(city, null);
+    }
+
+    private WeatherData requestWeather(String city, CompletableFuture<?> caller) throws IOException {
+        RawResponse raw = sendRequest(new Request("CURRENT", city, null, encoding()), caller);
+        if (raw.isBinary()) {
+            return BinaryResponseDecoder.decodeWeather(raw.getPayload());
         }
-        
-        // Parse response data
-        return parseWeatherData(response.data);
+        return JsonResponseDecoder.decodeWeather(raw.getPayload());
     }
 
     /**
      * Request day detail
      */
     public DayDetailData requestDayDetail(String city, long dayTimestamp) throws IOException {
-        String requestJson = gson.toJson(new Request("DETAIL_DAY", city, dayTimestamp));
-        String responseJson = sendRequest(requestJson);
-        
-        Response response = gson.fromJson(responseJson, Response.class);
-        
-        if (!response.success) {
-            throw new IOException(response.error != null ? response.error : "Unknown error");
+        return requestDayDetail(city, dayTimestamp, null);
+    }
+
+    private DayDetailData requestDayDetail(String city, long dayTimestamp, CompletableFuture<?> caller)
+            throws IOException {
+        RawResponse raw = sendRequest(new Request("DETAIL_DAY", city, dayTimestamp, encoding()), caller);
+        if (raw.isBinary()) {
+            return BinaryResponseDecoder.decodeDayDetail(raw.getPayload());
         }
-        
-        // Parse response data
-        return parseDayDetailData(response.data);
+        return JsonResponseDecoder.decodeDayDetail(raw.getPayload());
     }
 
-    private String sendRequest(String requestJson) throws IOException {
-        byte[] requestData = requestJson.getBytes(StandardCharsets.UTF_8);
-        
-        IOException lastException = null;
-        for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
-            try (DatagramSocket socket = new DatagramSocket()) {
-                socket.setSoTimeout(TIMEOUT_MS);
-                
-                InetAddress serverAddress = InetAddress.getByName(serverHost);
-                DatagramPacket requestPacket = new DatagramPacket(
-                    requestData, requestData.length, serverAddress, serverPort
-                );
-                
-                socket.send(requestPacket);
-                
-                // Receive response
-                byte[] buffer = new byte[BUFFER_SIZE];
-                DatagramPacket responsePacket = new DatagramPacket(buffer, buffer.length);
-                socket.receive(responsePacket);
-                
-                String response = new String(
-                    responsePacket.getData(), 0, responsePacket.getLength(), StandardCharsets.UTF_8
-                );
-                
-                return response;
-            } catch (SocketTimeoutException e) {
-                lastException = new IOException("Request timeout", e);
-                // Retry with shorter delay
-                if (attempt < MAX_RETRIES - 1) {
-                    try {
-                        Thread.sleep(200 * (attempt + 1)); // Faster retry
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Interrupted", ie);
-                    }
+    /**
+     * The servers in use, with their round-trip estimates and health, for monitoring
+     */
+    public ServerPool getServers() {
+        return servers;
+    }
+
+    /**
+     * Latencies of recent requests answered without any resend, which set the hedging
+     * delay. Resent requests are left out so that loss itself cannot push the delay up.
+     */
+    public LatencyTracker getLatencyTracker() {
+        return latencies;
+    }
+
+    public long getHedgesSent() {
+        return hedgesSent.get();
+    }
+
+    /**
+     * Request current weather without blocking. Cancelling the future abandons the request.
+     */
+    public CompletableFuture<WeatherData> requestWeatherAsync(String city) {
+        return submitAsync(caller -> requestWeather(city, caller));
+    }
+
+    /**
+     * Request day detail without blocking. Cancelling the future abandons the request.
+     */
+    public CompletableFuture<DayDetailData> requestDayDetailAsync(String city, long dayTimestamp) {
+        return submitAsync(caller -> requestDayDetail(city, dayTimestamp, caller));
+    }
+
+    /**
+     * A blocking request that gives up once its caller's future is cancelled
+     */
+    private interface AsyncRequest<T> {
+        T call(CompletableFuture<?> caller) throws IOException;
+    }
+
+    /**
+     * Run a blocking request on the shared executor. Cancelling the returned future wakes
+     * the worker, which stops waiting and frees its slot. The worker is never interrupted:
+     * an interrupt during a send would close the channel shared by every request.
+     */
+    private <T> CompletableFuture<T> submitAsync(AsyncRequest<T> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = asyncExecutor.submit(() -> {
+                if (result.isDone()) {
+                    return; // Cancelled while queued
                 }
-            } catch (IOException e) {
-                lastException = e;
-                if (attempt < MAX_RETRIES - 1) {
-                    try {
-                        Thread.sleep(200 * (attempt + 1)); // Faster retry
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Interrupted", ie);
-                    }
+                try {
+                    result.complete(request.call(result));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
                 }
-            }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IOException("Too many requests in flight", e));
+            return result;
         }
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                task.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    private static ExecutorService newAsyncExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(ASYNC_QUEUE_SIZE), runnable -> {
+                    Thread thread = new Thread(runnable, "weather-client-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private String encoding() {
+        return binaryEncoding ? "BINARY" : "JSON";
+    }
+
+    /**
+     * Send a request to one of the servers and wait for its response.
+     * Many threads may call this at once; the receiver threads route each
+     * fragment to its request by the id in the fragment header.
+     */
+    private RawResponse sendRequest(Request request, CompletableFuture<?> caller) throws IOException {
+        request.requestId = nextRequestId();
+        request.compression = deflate ? "DEFLATE" : null;
         
-        throw lastException != null ? lastException : new IOException("Failed after " + MAX_RETRIES + " attempts");
+        PendingResponse pending = new PendingResponse(request.requestId);
+        pendingResponses.put(request.requestId, pending);
+        try {
+            return awaitResponse(request, pending, caller).inflated();
+        } finally {
+            pendingResponses.remove(request.requestId);
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    private WeatherData parseWeatherData(Object data) {
-        if (data == null) {
-            return null;
+    /**
+     * Send the request and wait for all fragments of its response.
+     * While nothing has arrived, the request is resent every retransmission timeout,
+     * doubling the timeout each time, until REQUEST_TIMEOUT_MS; each resend goes to another
+     * server if one is available, and gaps in a partial response are NACKed to the server
+     * sending it instead. The RTO is learned from replies that include the server's work,
+     * so a cold forecast can outlast several RTOs: a server that timed out is only counted
+     * as failed once another server answered instead or the request gives up.
+     * Every transmission uses the same id, so fragments from any of them count.
+     * With hedging on, a duplicate goes to a second server once the request has taken
+     * longer than 95% of recent loss-free requests, well before a resend would;
+     * a server that sees both copies drops the second.
+     * A "busy" reply sends the request on to another server at once, or back to the
+     * same one after the delay it asked for, doubled for each busy reply in a row and
+     * jittered; busy replies only count against the overall deadline. Each transmission
+     * tells the server how much longer the client will wait, so it can drop requests
+     * that queued too long.
+     * If caller is cancelled, the wait ends at once with an IOException.
+     */
+    private RawResponse awaitResponse(Request request, PendingResponse pending, CompletableFuture<?> caller)
+            throws IOException {
+        int requestId = request.requestId;
+        if (caller != null) {
+            caller.whenComplete((value, error) -> {
+                PendingResponse current = caller.isCancelled() ? pendingResponses.get(requestId) : null;
+                if (current != null) {
+                    current.future().cancel(false);
+                }
+            });
         }
-        
+        long start = System.currentTimeMillis();
+        long deadline = start + REQUEST_TIMEOUT_MS;
+        long sentAt = start; // First transmission since the last busy reply
+        ServerNode target = servers.pick(null);
+        List<ServerNode> used = new ArrayList<>(2);
+        long rto = target.getRttEstimator().getRetransmitTimeoutMillis();
+        long retransmitAt = start + rto;
+        long hedgeAt = hedgeAt(start, retransmitAt);
+        boolean backingOff = false; // Waiting out a busy reply, not a lost request
+        int transmissions = 1;
+        int nacks = 0;
+        int busyReplies = 0;
+        // Servers that let a transmission time out, with the longest RTO they missed
+        Map<ServerNode, Long> unanswered = new HashMap<>(2);
+        boolean answered = false; // Settled either way, so unanswered can be judged
         try {
-            String json = gson.toJson(data);
-            java.util.Map<String, Object> map = gson.fromJson(json, java.util.Map.class);
-            
-            WeatherData weatherData = new WeatherData();
-            weatherData.setCity((String) map.get("city"));
-            weatherData.setTimezone((String) map.get("timezone"));
-            
-            // Parse current
-            if (map.containsKey("current")) {
-                java.util.Map<String, Object> currentMap = (java.util.Map<String, Object>) map.get("current");
-                WeatherData.CurrentWeather current = parseCurrentWeather(currentMap);
-                weatherData.setCurrent(current);
-            }
-            
-            // Parse hourly - handle both array and list
-            if (map.containsKey("hourly")) {
-                Object hourlyObj = map.get("hourly");
-                java.util.List<Object> hourlyList;
-                if (hourlyObj instanceof java.util.List) {
-                    hourlyList = (java.util.List<Object>) hourlyObj;
-                } else if (hourlyObj instanceof Object[]) {
-                    hourlyList = java.util.Arrays.asList((Object[]) hourlyObj);
-                } else {
-                    hourlyList = new java.util.ArrayList<>();
+            send(target, encode(request, deadline), used);
+            while (true) {
+                if (caller != null && caller.isCancelled()) {
+                    throw new IOException("Request cancelled");
                 }
-                
-                if (!hourlyList.isEmpty()) {
-                    java.util.List<WeatherData.HourlyForecast> validHourly = new java.util.ArrayList<>();
-                    for (Object item : hourlyList) {
-                        if (item instanceof java.util.Map) {
-                            WeatherData.HourlyForecast hourly = parseHourlyForecast((java.util.Map<String, Object>) item);
-                            if (hourly != null && hourly.getTimestamp() > 0) {
-                                validHourly.add(hourly);
+                // Wake at least every gap interval so a partial response is noticed early
+                long waitMs = pending.hasAny()
+                        ? FRAGMENT_GAP_MS - pending.sinceLastFragment()
+                        : Math.min(FRAGMENT_GAP_MS,
+                                Math.min(Math.min(retransmitAt, hedgeAt), deadline) - System.currentTimeMillis());
+                try {
+                    RawResponse response = pending.future().get(Math.max(1, waitMs), TimeUnit.MILLISECONDS);
+                    long now = System.currentTimeMillis();
+                    ServerNode source = pending.source();
+                    unanswered.remove(source);
+                    if (response.isBusy()) {
+                        long retryAfter = JsonResponseDecoder.decodeRetryAfter(response.getPayload());
+                        source.recordBusy(retryAfter);
+                        busyReplies++;
+                        pending = restart(requestId);
+                        hedgeAt = Long.MAX_VALUE;
+                        nacks = 0;
+                        target = servers.pick(source);
+                        if (target.isAvailable(now)) {
+                            rto = target.getRttEstimator().getRetransmitTimeoutMillis();
+                            retransmitAt = now + rto;
+                            sentAt = now;
+                            transmissions = 1;
+                            send(target, encode(request, deadline), used);
+                        } else {
+                            long backoff = retryAfter << Math.min(busyReplies - 1, MAX_BUSY_BACKOFF_SHIFT);
+                            backoff += ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                            if (now + backoff >= deadline) {
+                                throw new IOException("Server busy");
                             }
+                            retransmitAt = now + backoff;
+                            backingOff = true;
                         }
+                        continue;
                     }
-                    if (!validHourly.isEmpty()) {
-                        weatherData.setHourly(validHourly.toArray(new WeatherData.HourlyForecast[0]));
+                    source.recordSuccess();
+                    answered = true;
+                    if (transmissions == 1 && nacks == 0) {
+                        long latency = now - sentAt;
+                        source.getRttEstimator().recordSample(latency);
+                        latencies.record(latency);
                     }
-                }
-            }
-            
-            // Parse daily - handle both array and list
-            if (map.containsKey("daily")) {
-                Object dailyObj = map.get("daily");
-                java.util.List<Object> dailyList;
-                if (dailyObj instanceof java.util.List) {
-                    dailyList = (java.util.List<Object>) dailyObj;
-                } else if (dailyObj instanceof Object[]) {
-                    dailyList = java.util.Arrays.asList((Object[]) dailyObj);
-                } else {
-                    dailyList = new java.util.ArrayList<>();
-                }
-                
-                if (!dailyList.isEmpty()) {
-                    java.util.List<WeatherData.DailyForecast> validDaily = new java.util.ArrayList<>();
-                    for (Object item : dailyList) {
-                        if (item instanceof java.util.Map) {
-                            WeatherData.DailyForecast daily = parseDailyForecast((java.util.Map<String, Object>) item);
-                            if (daily != null && daily.getTimestamp() > 0) {
-                                validDaily.add(daily);
-                            }
+                    return response;
+                } catch (TimeoutException e) {
+                    long now = System.currentTimeMillis();
+                    if (now >= deadline) {
+                        answered = true; // Given up: every server left in unanswered failed
+                        throw new IOException("Request timeout", e);
+                    }
+                    if (pending.hasAny()) {
+                        if (pending.sinceLastFragment() < FRAGMENT_GAP_MS) {
+                            continue;
+                        }
+                        if (nacks < MAX_NACKS) {
+                            // Ask only for the fragments that were lost
+                            nacks++;
+                            pending.touch();
+                            send(pending.source(), gson.toJson(Request.nack(requestId, pending.missing()))
+                                    .getBytes(StandardCharsets.UTF_8), used);
+                            continue;
                         }
+                    } else if (now >= hedgeAt && now < retransmitAt) {
+                        hedgeAt = Long.MAX_VALUE;
+                        hedgesSent.incrementAndGet();
+                        transmissions++;
+                        send(servers.pick(target), encode(request, deadline), used);
+                        continue;
+                    } else if (now < retransmitAt) {
+                        continue;
                     }
-                    if (!validDaily.isEmpty()) {
-                        weatherData.setDaily(validDaily.toArray(new WeatherData.DailyForecast[0]));
+                    if (backingOff) {
+                        backingOff = false;
+                        rto = target.getRttEstimator().getRetransmitTimeoutMillis();
+                        sentAt = now;
+                        transmissions = 0;
+                    } else {
+                        if (pending.hasAny()) {
+                            // The server is answering, just losing fragments; keep asking it
+                            target = pending.source();
+                            target.getRttEstimator().recordTimeout(rto);
+                        } else {
+                            // Lost, or still working on it: only the outcome tells which
+                            unanswered.merge(target, rto, Math::max);
+                            target.invalidateAddress();
+                            target = servers.pick(target);
+                        }
+                        rto = Math.min(RttEstimator.MAX_RTO_MS, rto * 2);
                     }
+                    retransmitAt = now + rto;
+                    transmissions++;
+                    nacks = 0;
+                    pending.touch();
+                    send(target, encode(request, deadline), used);
+                } catch (CancellationException e) {
+                    throw new IOException("Request cancelled", e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted", e);
+                } catch (ExecutionException e) {
+                    throw new IOException("Connection closed", e.getCause());
                 }
             }
-            
-            // Validate and ensure data completeness
-            if (weatherData.getCurrent() == null) {
-                System.err.println("WARNING: No current weather data");
-                return null;
-            }
-            
-            // Ensure hourly data exists
-            if (weatherData.getHourly() == null || weatherData.getHourly().length == 0) {
-                System.err.println("WARNING: No hourly forecast data");
-                // Don't return null, just log warning
-            } else {
-                System.out.println("✓ Parsed " + weatherData.getHourly().length + " hourly forecasts");
+        } finally {
+            for (ServerNode node : used) {
+                node.release();
             }
-            
-            // Ensure daily data exists
-            if (weatherData.getDaily() == null || weatherData.getDaily().length == 0) {
-                System.err.println("WARNING: No daily forecast data");
-                // Don't return null, just log warning
-            } else {
-                System.out.println("✓ Parsed " + weatherData.getDaily().length + " daily forecasts");
-            }
-            
-            return weatherData;
-        } catch (Exception e) {
-            System.err.println("Error parsing weather data: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    private WeatherData.CurrentWeather parseCurrentWeather(java.util.Map<String, Object> map) {
-        if (map == null) {
-            return null;
-        }
-        
-        WeatherData.CurrentWeather current = new WeatherData.CurrentWeather();
-        current.setTemp(getDouble(map, "temp"));
-        current.setFeelsLike(getDouble(map, "feelsLike"));
-        current.setHumidity(getInt(map, "humidity"));
-        current.setPressure(getDouble(map, "pressure"));
-        current.setWindSpeed(getDouble(map, "windSpeed"));
-        current.setWindDeg(getInt(map, "windDeg"));
-        current.setWindGust(getDoubleOrNull(map, "windGust"));
-        current.setTimestamp(getLong(map, "timestamp"));
-        current.setUvi(getDouble(map, "uvi"));
-        current.setVisibility(getInt(map, "visibility"));
-        
-        // Validate and fix values
-        if (current.getHumidity() < 0) current.setHumidity(0);
-        if (current.getHumidity() > 100) current.setHumidity(100);
-        if (current.getUvi() < 0) current.setUvi(0);
-        if (current.getVisibility() < 0) current.setVisibility(0);
-        if (current.getWindDeg() < 0) current.setWindDeg(0);
-        if (current.getWindDeg() >= 360) current.setWindDeg(current.getWindDeg() % 360);
-        
-        if (map.containsKey("weather")) {
-            Object weatherObj = map.get("weather");
-            if (weatherObj instanceof java.util.Map) {
-                current.setWeather(parseWeatherCondition((java.util.Map<String, Object>) weatherObj));
-            }
-        }
-        
-        if (map.containsKey("tempRange")) {
-            Object tempRangeObj = map.get("tempRange");
-            if (tempRangeObj instanceof java.util.Map) {
-                java.util.Map<String, Object> tempRangeMap = (java.util.Map<String, Object>) tempRangeObj;
-                WeatherData.TempRange tempRange = new WeatherData.TempRange();
-                tempRange.setMin(getDouble(tempRangeMap, "min"));
-                tempRange.setMax(getDouble(tempRangeMap, "max"));
-                // Ensure min <= max
-                if (tempRange.getMin() > tempRange.getMax()) {
-                    double temp = tempRange.getMin();
-                    tempRange.setMin(tempRange.getMax());
-                    tempRange.setMax(temp);
+            if (answered) {
+                for (Map.Entry<ServerNode, Long> silent : unanswered.entrySet()) {
+                    silent.getKey().recordFailure(silent.getValue());
                 }
-                current.setTempRange(tempRange);
-            }
-        }
-        
-        return current;
-    }
-
-    @SuppressWarnings("unchecked")
-    private WeatherData.HourlyForecast parseHourlyForecast(java.util.Map<String, Object> map) {
-        if (map == null) {
-            return null;
-        }
-        
-        WeatherData.HourlyForecast hourly = new WeatherData.HourlyForecast();
-        hourly.setTimestamp(getLong(map, "timestamp"));
-        hourly.setTemp(getDouble(map, "temp"));
-        hourly.setPop(getDouble(map, "pop"));
-        
-        // Ensure pop is between 0 and 1
-        if (hourly.getPop() < 0) hourly.setPop(0);
-        if (hourly.getPop() > 1) hourly.setPop(1);
-        
-        if (map.containsKey("weather")) {
-            Object weatherObj = map.get("weather");
-            if (weatherObj instanceof java.util.Map) {
-                hourly.setWeather(parseWeatherCondition((java.util.Map<String, Object>) weatherObj));
             }
         }
-        
-        // Validate required fields
-        if (hourly.getTimestamp() <= 0 || Double.isNaN(hourly.getTemp())) {
-            return null;
-        }
-        
-        return hourly;
-    }
-
-    @SuppressWarnings("unchecked")
-    private WeatherData.DailyForecast parseDailyForecast(java.util.Map<String, Object> map) {
-        if (map == null) {
-            return null;
-        }
-        
-        WeatherData.DailyForecast daily = new WeatherData.DailyForecast();
-        daily.setTimestamp(getLong(map, "timestamp"));
-        daily.setTempMin(getDouble(map, "tempMin"));
-        daily.setTempMax(getDouble(map, "tempMax"));
-        daily.setPop(getDouble(map, "pop"));
-        daily.setHumidity(getInt(map, "humidity"));
-        daily.setRain(getDouble(map, "rain"));
-        
-        // Ensure pop is between 0 and 1
-        if (daily.getPop() < 0) daily.setPop(0);
-        if (daily.getPop() > 1) daily.setPop(1);
-        
-        // Ensure humidity is between 0 and 100
-        if (daily.getHumidity() < 0) daily.setHumidity(0);
-        if (daily.getHumidity() > 100) daily.setHumidity(100);
-        
-        // Ensure min <= max
-        if (daily.getTempMin() > daily.getTempMax()) {
-            double temp = daily.getTempMin();
-            daily.setTempMin(daily.getTempMax());
-            daily.setTempMax(temp);
-        }
-        
-        if (map.containsKey("weather")) {
-            Object weatherObj = map.get("weather");
-            if (weatherObj instanceof java.util.Map) {
-                daily.setWeather(parseWeatherCondition((java.util.Map<String, Object>) weatherObj));
-            }
-        }
-        
-        // Validate required fields
-        if (daily.getTimestamp() <= 0 || Double.isNaN(daily.getTempMin()) || Double.isNaN(daily.getTempMax())) {
-            return null;
-        }
-        
-        return daily;
     }
 
-    @SuppressWarnings("unchecked")
-    private WeatherData.WeatherCondition parseWeatherCondition(java.util.Map<String, Object> map) {
-        WeatherData.WeatherCondition weather = new WeatherData.WeatherCondition();
-        weather.setMain((String) map.get("main"));
-        weather.setDescription((String) map.get("description"));
-        weather.setIcon((String) map.get("icon"));
-        return weather;
+    /**
+     * Serialize a transmission of the request, stamped with the time the client will still wait
+     */
+    private byte[] encode(Request request, long deadline) {
+        request.timeoutMs = Math.max(0, deadline - System.currentTimeMillis());
+        return gson.toJson(request).getBytes(StandardCharsets.UTF_8);
     }
 
-    @SuppressWarnings("unchecked")
-    private DayDetailData parseDayDetailData(Object data) {
-        if (data == null) {
-            return null;
-        }
-        
-        try {
-            String json = gson.toJson(data);
-            java.util.Map<String, Object> map = gson.fromJson(json, java.util.Map.class);
-            
-            DayDetailData detailData = new DayDetailData();
-            
-            // Parse day
-            if (map.containsKey("day")) {
-                detailData.setDay(parseDayData((java.util.Map<String, Object>) map.get("day")));
-            }
-            
-            // Parse hourly
-            if (map.containsKey("hourly")) {
-                java.util.List<Object> hourlyList = (java.util.List<Object>) map.get("hourly");
-                DayDetailData.HourlyData[] hourly = new DayDetailData.HourlyData[hourlyList.size()];
-                for (int i = 0; i < hourlyList.size(); i++) {
-                    hourly[i] = parseHourlyData((java.util.Map<String, Object>) hourlyList.get(i));
-                }
-                detailData.setHourly(hourly);
-            }
-            
-            // Parse today
-            if (map.containsKey("today")) {
-                detailData.setToday(parseTodayData((java.util.Map<String, Object>) map.get("today")));
-            }
-            
-            return detailData;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+    /**
+     * Replace a request's completed PendingResponse (a busy reply) with a fresh one for the resend
+     */
+    private PendingResponse restart(int requestId) {
+        PendingResponse fresh = new PendingResponse(requestId);
+        pendingResponses.put(requestId, fresh);
+        return fresh;
     }
 
-    @SuppressWarnings("unchecked")
-    private DayDetailData.DayData parseDayData(java.util.Map<String, Object> map) {
-        DayDetailData.DayData day = new DayDetailData.DayData();
-        day.setTimestamp(getLong(map, "timestamp"));
-        day.setTempMin(getDouble(map, "tempMin"));
-        day.setTempMax(getDouble(map, "tempMax"));
-        day.setTempAvg(getDouble(map, "tempAvg"));
-        day.setHumidity(getInt(map, "humidity"));
-        day.setPop(getDouble(map, "pop"));
-        day.setRain(getDouble(map, "rain"));
-        
-        if (map.containsKey("weather")) {
-            day.setWeather(parseDayDetailWeatherCondition((java.util.Map<String, Object>) map.get("weather")));
+    /**
+     * When to hedge a request sent at start: at the recent p95 latency, or never if
+     * hedging is off, there is too little history, or a resend would come first anyway
+     */
+    private long hedgeAt(long start, long retransmitAt) {
+        if (!hedging) {
+            return Long.MAX_VALUE;
         }
-        
-        return day;
-    }
-
-    @SuppressWarnings("unchecked")
-    private DayDetailData.HourlyData parseHourlyData(java.util.Map<String, Object> map) {
-        DayDetailData.HourlyData hourly = new DayDetailData.HourlyData();
-        hourly.setTimestamp(getLong(map, "timestamp"));
-        hourly.setTemp(getDouble(map, "temp"));
-        hourly.setPop(getDouble(map, "pop"));
-        hourly.setHumidity(getInt(map, "humidity"));
-        
-        if (map.containsKey("weather")) {
-            hourly.setWeather(parseDayDetailWeatherCondition((java.util.Map<String, Object>) map.get("weather")));
+        long p95 = latencies.percentile(0.95, MIN_HEDGE_SAMPLES);
+        if (p95 < 0) {
+            return Long.MAX_VALUE;
         }
-        
-        return hourly;
+        long hedgeAt = start + Math.max(MIN_HEDGE_DELAY_MS, p95);
+        return hedgeAt < retransmitAt ? hedgeAt : Long.MAX_VALUE;
     }
 
-    @SuppressWarnings("unchecked")
-    private DayDetailData.TodayData parseTodayData(java.util.Map<String, Object> map) {
-        DayDetailData.TodayData today = new DayDetailData.TodayData();
-        today.setTempAvg(getDouble(map, "tempAvg"));
-        today.setHumidity(getInt(map, "humidity"));
-        today.setRain(getDouble(map, "rain"));
-        return today;
-    }
-
-    @SuppressWarnings("unchecked")
-    private DayDetailData.WeatherCondition parseDayDetailWeatherCondition(java.util.Map<String, Object> map) {
-        DayDetailData.WeatherCondition weather = new DayDetailData.WeatherCondition();
-        weather.setMain((String) map.get("main"));
-        weather.setIcon((String) map.get("icon"));
-        return weather;
-    }
-
-    // Helper methods
-    private double getDouble(java.util.Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value instanceof Number) {
-            return ((Number) value).doubleValue();
+    /**
+     * Send to a server, counting the request as outstanding there until it finishes
+     */
+    private static void send(ServerNode node, byte[] data, List<ServerNode> used) throws IOException {
+        if (!used.contains(node)) {
+            node.acquire();
+            used.add(node);
         }
-        return 0.0;
+        node.send(data);
     }
 
-    private Double getDoubleOrNull(java.util.Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null) {
-            return null;
-        }
-        if (value instanceof Number) {
-            return ((Number) value).doubleValue();
+    /**
+     * Route an incoming fragment to the request it answers. Fragments for requests
+     * that already finished or timed out are dropped.
+     */
+    private void route(ServerNode from, byte[] data, int length) {
+        int id = FragmentAssembler.readRequestId(data, length);
+        PendingResponse pending = id > 0 ? pendingResponses.get(id) : null;
+        if (pending != null) {
+            pending.accept(from, data, length);
         }
-        return null;
     }
 
-    private int getInt(java.util.Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value instanceof Number) {
-            return ((Number) value).intValue();
+    /**
+     * Close the server connections, stop the async executor and fail any requests still waiting
+     */
+    @Override
+    public void close() {
+        asyncExecutor.shutdownNow();
+        servers.close();
+        for (PendingResponse pending : pendingResponses.values()) {
+            pending.future().completeExceptionally(new IOException("Client closed"));
         }
-        return 0;
     }
 
-    private long getLong(java.util.Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value instanceof Number) {
-            return ((Number) value).longValue();
-        }
-        return 0L;
+    private int nextRequestId() {
+        int id = nextRequestId.incrementAndGet() & Integer.MAX_VALUE;
+        // 0 is reserved for responses to unparseable requests, which cannot be routed
+        return id == 0 ? nextRequestId() : id;
     }
 
-    // Request/Response models
+    // Request model
     private static class Request {
         String type;
         String city;
         Long dayTimestamp;
+        int requestId;
+        int[] missing;
+        String encoding;
+        String compression;
+        Long timeoutMs;
 
-        Request(String type, String city, Long dayTimestamp) {
+        Request(String type, String city, Long dayTimestamp, String encoding) {
             this.type = type;
             this.city = city;
             this.dayTimestamp = dayTimestamp;
+            this.encoding = encoding;
         }
-    }
 
-    private static class Response {
-        boolean success;
-        String error;
-        Object data;
+        static Request nack(int requestId, int[] missing) {
+            Request nack = new Request("NACK", null, null, null);
+            nack.requestId = requestId;
+            nack.missing = missing;
+            return nack;
+        }
     }
 }
-
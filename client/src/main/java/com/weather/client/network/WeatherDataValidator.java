@@ -0,0 +1,64 @@
+package com.weather.client.network;
+
+import com.weather.client.model.WeatherData;
+
+/**
+ * Range checks applied to decoded weather data, whatever wire encoding it arrived in
+ */
+final class WeatherDataValidator {
+    private WeatherDataValidator() {
+    }
+
+    static void fixCurrent(WeatherData.CurrentWeather current) {
+        if (current.getHumidity() < 0) current.setHumidity(0);
+        if (current.getHumidity() > 100) current.setHumidity(100);
+        if (current.getUvi() < 0) current.setUvi(0);
+        if (current.getVisibility() < 0) current.setVisibility(0);
+        if (current.getWindDeg() < 0) current.setWindDeg(0);
+        if (current.getWindDeg() >= 360) current.setWindDeg(current.getWindDeg() % 360);
+    }
+
+    static void fixTempRange(WeatherData.TempRange tempRange) {
+        // Ensure min <= max
+        if (tempRange.getMin() > tempRange.getMax()) {
+            double temp = tempRange.getMin();
+            tempRange.setMin(tempRange.getMax());
+            tempRange.setMax(temp);
+        }
+    }
+
+    /**
+     * @return false if the entry lacks required fields and should be dropped
+     */
+    static boolean fixHourly(WeatherData.HourlyForecast hourly) {
+        // Ensure pop is between 0 and 1
+        if (hourly.getPop() < 0) hourly.setPop(0);
+        if (hourly.getPop() > 1) hourly.setPop(1);
+        
+        // Validate required fields
+        return hourly.getTimestamp() > 0 && !Double.isNaN(hourly.getTemp());
+    }
+
+    /**
+     * @return false if the entry lacks required fields and should be dropped
+     */
+    static boolean fixDaily(WeatherData.DailyForecast daily) {
+        // Ensure pop is between 0 and 1
+        if (daily.getPop() < 0) daily.setPop(0);
+        if (daily.getPop() > 1) daily.setPop(1);
+        
+        // Ensure humidity is between 0 and 100
+        if (daily.getHumidity() < 0) daily.setHumidity(0);
+        if (daily.getHumidity() > 100) daily.setHumidity(100);
+        
+        // Ensure min <= max
+        if (daily.getTempMin() > daily.getTempMax()) {
+            double temp = daily.getTempMin();
+            daily.setTempMin(daily.getTempMax());
+            daily.setTempMax(temp);
+        }
+        
+        // Validate required fields
+        return daily.getTimestamp() > 0 && !Double.isNaN(daily.getTempMin()) && !Double.isNaN(daily.getTempMax());
+    }
+}
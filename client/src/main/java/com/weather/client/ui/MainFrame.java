@@ -2,12 +2,14 @@ package com.weather.client.ui;
 
 import com.weather.client.model.DayDetailData;
 import com.weather.client.model.WeatherData;
+import com.weather.client.network.CachingWeatherClient;
 import com.weather.client.network.WeatherClientNetwork;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.GraphicsEnvironment;
-import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class MainFrame extends JFrame {
     private static final Color DARK_BG = new Color(15, 23, 42);
@@ -17,6 +19,7 @@ public class MainFrame extends JFrame {
     private static final Color ACCENT = new Color(59, 130, 246);
     
     private final WeatherClientNetwork network;
+    private final CachingWeatherClient weatherCache;
     private final CardLayout cardLayout;
     private final JPanel mainPanel;
     
@@ -30,9 +33,15 @@ public class MainFrame extends JFrame {
     
     private WeatherData currentWeatherData;
     private String currentCity;
+    
+    // Latest requests; only these may update the panels. Touched on the EDT only.
+    private CompletableFuture<CachingWeatherClient.Cached<WeatherData>> pendingLookup;
+    private CompletableFuture<WeatherData> pendingWeather;
+    private CompletableFuture<DayDetailData> pendingDetail;
 
     public MainFrame() {
         this.network = new WeatherClientNetwork();
+        this.weatherCache = new CachingWeatherClient(network);
         this.cardLayout = new CardLayout();
         this.mainPanel = new JPanel(cardLayout);
         
@@ -365,31 +374,73 @@ public class MainFrame extends JFrame {
             return;
         }
         
-        // Show loading panel
+        // A newer selection supersedes whatever is still loading
+        cancelPending();
+        
+        // Show cached data right away; only a fresh entry skips the network
+        CachingWeatherClient.Cached<WeatherData> cached = weatherCache.getCachedWeather(city);
+        if (cached != null) {
+            showWeather(city, cached.getData());
+            if (!cached.isFresh()) {
+                refreshWeather(city, cached);
+            }
+            return;
+        }
+        
+        // Show loading panel while any saved forecast is read from disk off the EDT
         cardLayout.show(mainPanel, "LOADING");
         setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-        
-        new Thread(() -> {
-            try {
-                long startTime = System.currentTimeMillis();
-                WeatherData data = network.requestWeather(city);
-                long loadTime = System.currentTimeMillis() - startTime;
-                
-                if (data == null) {
-                    throw new IOException("Không thể parse dữ liệu từ server");
+        CompletableFuture<CachingWeatherClient.Cached<WeatherData>> lookup = weatherCache.loadCachedWeatherAsync(city);
+        pendingLookup = lookup;
+        lookup.whenComplete((stored, error) -> SwingUtilities.invokeLater(() -> {
+            if (lookup != pendingLookup) {
+                return;
+            }
+            pendingLookup = null;
+            if (stored != null) {
+                showWeather(city, stored.getData());
+                if (stored.isFresh()) {
+                    return;
                 }
-                
-                SwingUtilities.invokeLater(() -> {
-                    currentWeatherData = data;
-                    currentCity = city;
-                    updateWeatherDisplay(data);
-                    cardLayout.show(mainPanel, "MAIN");
-                    setCursor(Cursor.getDefaultCursor());
-                    System.out.println("✓ Data loaded in " + loadTime + "ms");
-                });
-            } catch (IOException e) {
-                SwingUtilities.invokeLater(() -> {
-                    String errorMsg = formatErrorMessage(e.getMessage(), city);
+            }
+            refreshWeather(city, stored);
+        }));
+    }
+    
+    /**
+     * Fetch the forecast from the server; cached is what is on screen already, if anything
+     */
+    private void refreshWeather(String city, CachingWeatherClient.Cached<WeatherData> cached) {
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<WeatherData> request = weatherCache.refreshWeatherAsync(city);
+        pendingWeather = request;
+        request.whenComplete((data, error) -> {
+            if (request.isCancelled()) {
+                return; // Superseded, and cancel() runs this on the EDT
+            }
+            // Reading the saved forecast touches disk, so do it here rather than on the EDT
+            CachingWeatherClient.Cached<WeatherData> lastKnown = (error != null || data == null) && cached == null
+                    ? weatherCache.getLastKnownWeather(city) : null;
+            SwingUtilities.invokeLater(() -> {
+                if (request != pendingWeather) {
+                    return;
+                }
+                pendingWeather = null;
+                if (error != null || data == null) {
+                    String message = error != null ? unwrap(error).getMessage() : "Không thể parse dữ liệu từ server";
+                    if (cached != null) {
+                        // Keep showing the stale data rather than interrupting with a dialog
+                        System.err.println("Background refresh failed for " + city + ": " + message);
+                        return;
+                    }
+                    if (lastKnown != null) {
+                        // Server unreachable: fall back to the last forecast saved on disk
+                        System.err.println("Showing saved forecast for " + city + " from "
+                                + new java.util.Date(lastKnown.getObservedAt()) + ": " + message);
+                        showWeather(city, lastKnown.getData());
+                        return;
+                    }
+                    String errorMsg = formatErrorMessage(message, city);
                     JOptionPane.showMessageDialog(
                         this,
                         errorMsg,
@@ -398,9 +449,44 @@ public class MainFrame extends JFrame {
                     );
                     cardLayout.show(mainPanel, "MAIN");
                     setCursor(Cursor.getDefaultCursor());
-                });
-            }
-        }).start();
+                    return;
+                }
+                
+                long loadTime = System.currentTimeMillis() - startTime;
+                if (cached != null) {
+                    // Refresh of data already on screen: update in place, keep the current view
+                    currentWeatherData = data;
+                    updateWeatherDisplay(data);
+                } else {
+                    showWeather(city, data);
+                }
+                System.out.println("✓ Data loaded in " + loadTime + "ms (" + network.getServers() + ")");
+            });
+        });
+    }
+    
+    private void showWeather(String city, WeatherData data) {
+        currentWeatherData = data;
+        currentCity = city;
+        updateWeatherDisplay(data);
+        cardLayout.show(mainPanel, "MAIN");
+        setCursor(Cursor.getDefaultCursor());
+    }
+    
+    private void cancelPending() {
+        pendingLookup = null;
+        if (pendingWeather != null) {
+            pendingWeather.cancel(true);
+            pendingWeather = null;
+        }
+        if (pendingDetail != null) {
+            pendingDetail.cancel(true);
+            pendingDetail = null;
+        }
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
     
     private String formatErrorMessage(String errorMsg, String city) {
@@ -466,28 +552,51 @@ public class MainFrame extends JFrame {
             return;
         }
         
-        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        if (pendingDetail != null) {
+            pendingDetail.cancel(true);
+            pendingDetail = null;
+        }
+        String city = currentCity;
+        WeatherData weatherData = currentWeatherData;
+        
+        CachingWeatherClient.Cached<DayDetailData> cached = weatherCache.getCachedDayDetail(city, dayTimestamp);
+        if (cached != null) {
+            dailyDetailPanel.updateData(cached.getData(), weatherData);
+            cardLayout.show(mainPanel, "DETAIL");
+            if (cached.isFresh()) {
+                return;
+            }
+        } else {
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        }
         
-        new Thread(() -> {
-            try {
-                DayDetailData detailData = network.requestDayDetail(currentCity, dayTimestamp);
-                SwingUtilities.invokeLater(() -> {
-                    dailyDetailPanel.updateData(detailData, currentWeatherData);
-                    cardLayout.show(mainPanel, "DETAIL");
-                    setCursor(Cursor.getDefaultCursor());
-                });
-            } catch (IOException e) {
-                SwingUtilities.invokeLater(() -> {
-                    String errorMsg = formatErrorMessage(e.getMessage(), currentCity);
-                    JOptionPane.showMessageDialog(
-                        this,
-                        errorMsg,
-                        "Lỗi",
-                        JOptionPane.ERROR_MESSAGE
-                    );
-                    setCursor(Cursor.getDefaultCursor());
-                });
+        CompletableFuture<DayDetailData> request = weatherCache.refreshDayDetailAsync(city, dayTimestamp);
+        pendingDetail = request;
+        request.whenComplete((detailData, error) -> SwingUtilities.invokeLater(() -> {
+            if (request != pendingDetail) {
+                return;
+            }
+            pendingDetail = null;
+            if (error != null) {
+                if (cached != null) {
+                    System.err.println("Background refresh failed for " + city + ": " + unwrap(error).getMessage());
+                    return;
+                }
+                String errorMsg = formatErrorMessage(unwrap(error).getMessage(), city);
+                JOptionPane.showMessageDialog(
+                    this,
+                    errorMsg,
+                    "Lỗi",
+                    JOptionPane.ERROR_MESSAGE
+                );
+                setCursor(Cursor.getDefaultCursor());
+                return;
+            }
+            dailyDetailPanel.updateData(detailData, weatherData);
+            if (cached == null) {
+                cardLayout.show(mainPanel, "DETAIL");
+                setCursor(Cursor.getDefaultCursor());
             }
-        }).start();
+        }));
     }
 }
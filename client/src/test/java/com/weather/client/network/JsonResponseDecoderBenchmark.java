@@ -0,0 +1,379 @@
+package com.weather.client.network;
+
+import com.google.gson.Gson;
+import com.weather.client.model.DayDetailData;
+import com.weather.client.model.WeatherData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a JSON response: the streaming JsonResponseDecoder against the Gson tree path
+ * WeatherClientNetwork used before (envelope to Object, back to JSON, to Map, to models).
+ *
+ * mvn -Pbench test-compile exec:exec -Dbench.args="JsonResponseDecoderBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonResponseDecoderBenchmark {
+    private final TreeDecoder tree = new TreeDecoder();
+    private byte[] weatherPayload;
+    private byte[] dayDetailPayload;
+
+    @Setup
+    public void setUp() {
+        Gson gson = new Gson();
+        weatherPayload = gson.toJson(envelope(weatherResponse())).getBytes(StandardCharsets.UTF_8);
+        dayDetailPayload = gson.toJson(envelope(dayDetailResponse())).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public WeatherData weatherStreaming() throws IOException {
+        return JsonResponseDecoder.decodeWeather(weatherPayload);
+    }
+
+    @Benchmark
+    public WeatherData weatherTree() {
+        return tree.decodeWeather(weatherPayload);
+    }
+
+    @Benchmark
+    public DayDetailData dayDetailStreaming() throws IOException {
+        return JsonResponseDecoder.decodeDayDetail(dayDetailPayload);
+    }
+
+    @Benchmark
+    public DayDetailData dayDetailTree() {
+        return tree.decodeDayDetail(dayDetailPayload);
+    }
+
+    private static Map<String, Object> envelope(Map<String, Object> data) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("data", data);
+        return response;
+    }
+
+    /**
+     * Same shape as the server's CURRENT response: 48 hours and 7 days
+     */
+    private static Map<String, Object> weatherResponse() {
+        long now = 1760000000L;
+        Map<String, Object> current = new LinkedHashMap<>();
+        current.put("temp", 28.4);
+        current.put("feelsLike", 31.2);
+        current.put("humidity", 78);
+        current.put("pressure", 1009);
+        current.put("windSpeed", 3.6);
+        current.put("windDeg", 140);
+        current.put("windGust", 6.1);
+        current.put("timestamp", now);
+        current.put("uvi", 7.3);
+        current.put("visibility", 10000);
+        current.put("weather", condition("Clouds", "broken clouds", "04d"));
+        Map<String, Object> tempRange = new LinkedHashMap<>();
+        tempRange.put("min", 24.9);
+        tempRange.put("max", 32.1);
+        current.put("tempRange", tempRange);
+
+        List<Object> hourly = new ArrayList<>();
+        for (int i = 0; i < 48; i++) {
+            Map<String, Object> hour = new LinkedHashMap<>();
+            hour.put("timestamp", now + i * 3600L);
+            hour.put("temp", 25.0 + (i % 12) * 0.6);
+            hour.put("pop", (i % 5) * 0.2);
+            hour.put("weather", condition("Rain", "light rain", "10d"));
+            hourly.add(hour);
+        }
+        List<Object> daily = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Map<String, Object> day = new LinkedHashMap<>();
+            day.put("timestamp", now + i * 86400L);
+            day.put("tempMin", 24.0 + i * 0.3);
+            day.put("tempMax", 32.0 + i * 0.2);
+            day.put("pop", 0.6);
+            day.put("humidity", 80);
+            day.put("weather", condition("Rain", "moderate rain", "10d"));
+            day.put("rain", 4.7);
+            daily.add(day);
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("current", current);
+        data.put("hourly", hourly);
+        data.put("daily", daily);
+        data.put("city", "Hanoi");
+        data.put("timezone", "Asia/Bangkok");
+        return data;
+    }
+
+    /**
+     * Same shape as the server's DETAIL_DAY response: one day and its 24 hours
+     */
+    private static Map<String, Object> dayDetailResponse() {
+        long dayStart = 1760054400L;
+        Map<String, Object> day = new LinkedHashMap<>();
+        day.put("timestamp", dayStart + 5 * 3600);
+        day.put("tempMin", 24.3);
+        day.put("tempMax", 31.8);
+        day.put("tempAvg", 28.0);
+        day.put("humidity", 81);
+        day.put("pop", 0.7);
+        day.put("rain", 5.2);
+        day.put("weather", condition("Rain", null, "10d"));
+
+        List<Object> hourly = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            Map<String, Object> hour = new LinkedHashMap<>();
+            hour.put("timestamp", dayStart + i * 3600L);
+            hour.put("temp", 24.5 + (i % 12) * 0.6);
+            hour.put("pop", (i % 5) * 0.2);
+            hour.put("humidity", 70 + i % 20);
+            hour.put("weather", condition(null, null, "10n"));
+            hourly.add(hour);
+        }
+        Map<String, Object> today = new LinkedHashMap<>();
+        today.put("tempAvg", 27.6);
+        today.put("humidity", 79);
+        today.put("rain", 3.1);
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("day", day);
+        data.put("hourly", hourly);
+        data.put("today", today);
+        return data;
+    }
+
+    private static Map<String, Object> condition(String main, String description, String icon) {
+        Map<String, Object> weather = new LinkedHashMap<>();
+        if (main != null) {
+            weather.put("main", main);
+        }
+        if (description != null) {
+            weather.put("description", description);
+        }
+        weather.put("icon", icon);
+        return weather;
+    }
+
+    /**
+     * The tree-based decoding WeatherClientNetwork used before JsonResponseDecoder,
+     * minus its progress logging
+     */
+    @SuppressWarnings("unchecked")
+    static final class TreeDecoder {
+        private final Gson gson = new Gson();
+
+        WeatherData decodeWeather(byte[] payload) {
+            Object data = gson.fromJson(new String(payload, StandardCharsets.UTF_8), Response.class).data;
+            if (data == null) {
+                return null;
+            }
+            Map<String, Object> map = gson.fromJson(gson.toJson(data), Map.class);
+
+            WeatherData weatherData = new WeatherData();
+            weatherData.setCity((String) map.get("city"));
+            weatherData.setTimezone((String) map.get("timezone"));
+            if (map.containsKey("current")) {
+                weatherData.setCurrent(parseCurrentWeather((Map<String, Object>) map.get("current")));
+            }
+            if (map.get("hourly") instanceof List) {
+                List<WeatherData.HourlyForecast> validHourly = new ArrayList<>();
+                for (Object item : (List<Object>) map.get("hourly")) {
+                    if (item instanceof Map) {
+                        WeatherData.HourlyForecast hourly = parseHourlyForecast((Map<String, Object>) item);
+                        if (hourly != null && hourly.getTimestamp() > 0) {
+                            validHourly.add(hourly);
+                        }
+                    }
+                }
+                if (!validHourly.isEmpty()) {
+                    weatherData.setHourly(validHourly.toArray(new WeatherData.HourlyForecast[0]));
+                }
+            }
+            if (map.get("daily") instanceof List) {
+                List<WeatherData.DailyForecast> validDaily = new ArrayList<>();
+                for (Object item : (List<Object>) map.get("daily")) {
+                    if (item instanceof Map) {
+                        WeatherData.DailyForecast daily = parseDailyForecast((Map<String, Object>) item);
+                        if (daily != null && daily.getTimestamp() > 0) {
+                            validDaily.add(daily);
+                        }
+                    }
+                }
+                if (!validDaily.isEmpty()) {
+                    weatherData.setDaily(validDaily.toArray(new WeatherData.DailyForecast[0]));
+                }
+            }
+            return weatherData.getCurrent() != null ? weatherData : null;
+        }
+
+        DayDetailData decodeDayDetail(byte[] payload) {
+            Object data = gson.fromJson(new String(payload, StandardCharsets.UTF_8), Response.class).data;
+            if (data == null) {
+                return null;
+            }
+            Map<String, Object> map = gson.fromJson(gson.toJson(data), Map.class);
+
+            DayDetailData detailData = new DayDetailData();
+            if (map.containsKey("day")) {
+                detailData.setDay(parseDayData((Map<String, Object>) map.get("day")));
+            }
+            if (map.containsKey("hourly")) {
+                List<Object> hourlyList = (List<Object>) map.get("hourly");
+                DayDetailData.HourlyData[] hourly = new DayDetailData.HourlyData[hourlyList.size()];
+                for (int i = 0; i < hourlyList.size(); i++) {
+                    hourly[i] = parseHourlyData((Map<String, Object>) hourlyList.get(i));
+                }
+                detailData.setHourly(hourly);
+            }
+            if (map.containsKey("today")) {
+                detailData.setToday(parseTodayData((Map<String, Object>) map.get("today")));
+            }
+            return detailData;
+        }
+
+        private WeatherData.CurrentWeather parseCurrentWeather(Map<String, Object> map) {
+            WeatherData.CurrentWeather current = new WeatherData.CurrentWeather();
+            current.setTemp(getDouble(map, "temp"));
+            current.setFeelsLike(getDouble(map, "feelsLike"));
+            current.setHumidity(getInt(map, "humidity"));
+            current.setPressure(getDouble(map, "pressure"));
+            current.setWindSpeed(getDouble(map, "windSpeed"));
+            current.setWindDeg(getInt(map, "windDeg"));
+            current.setWindGust(map.get("windGust") instanceof Number
+                    ? ((Number) map.get("windGust")).doubleValue() : null);
+            current.setTimestamp(getLong(map, "timestamp"));
+            current.setUvi(getDouble(map, "uvi"));
+            current.setVisibility(getInt(map, "visibility"));
+            WeatherDataValidator.fixCurrent(current);
+            if (map.get("weather") instanceof Map) {
+                current.setWeather(parseWeatherCondition((Map<String, Object>) map.get("weather")));
+            }
+            if (map.get("tempRange") instanceof Map) {
+                Map<String, Object> tempRangeMap = (Map<String, Object>) map.get("tempRange");
+                WeatherData.TempRange tempRange = new WeatherData.TempRange();
+                tempRange.setMin(getDouble(tempRangeMap, "min"));
+                tempRange.setMax(getDouble(tempRangeMap, "max"));
+                WeatherDataValidator.fixTempRange(tempRange);
+                current.setTempRange(tempRange);
+            }
+            return current;
+        }
+
+        private WeatherData.HourlyForecast parseHourlyForecast(Map<String, Object> map) {
+            WeatherData.HourlyForecast hourly = new WeatherData.HourlyForecast();
+            hourly.setTimestamp(getLong(map, "timestamp"));
+            hourly.setTemp(getDouble(map, "temp"));
+            hourly.setPop(getDouble(map, "pop"));
+            if (map.get("weather") instanceof Map) {
+                hourly.setWeather(parseWeatherCondition((Map<String, Object>) map.get("weather")));
+            }
+            return WeatherDataValidator.fixHourly(hourly) ? hourly : null;
+        }
+
+        private WeatherData.DailyForecast parseDailyForecast(Map<String, Object> map) {
+            WeatherData.DailyForecast daily = new WeatherData.DailyForecast();
+            daily.setTimestamp(getLong(map, "timestamp"));
+            daily.setTempMin(getDouble(map, "tempMin"));
+            daily.setTempMax(getDouble(map, "tempMax"));
+            daily.setPop(getDouble(map, "pop"));
+            daily.setHumidity(getInt(map, "humidity"));
+            daily.setRain(getDouble(map, "rain"));
+            if (map.get("weather") instanceof Map) {
+                daily.setWeather(parseWeatherCondition((Map<String, Object>) map.get("weather")));
+            }
+            return WeatherDataValidator.fixDaily(daily) ? daily : null;
+        }
+
+        private WeatherData.WeatherCondition parseWeatherCondition(Map<String, Object> map) {
+            WeatherData.WeatherCondition weather = new WeatherData.WeatherCondition();
+            weather.setMain((String) map.get("main"));
+            weather.setDescription((String) map.get("description"));
+            weather.setIcon((String) map.get("icon"));
+            return weather;
+        }
+
+        private DayDetailData.DayData parseDayData(Map<String, Object> map) {
+            DayDetailData.DayData day = new DayDetailData.DayData();
+            day.setTimestamp(getLong(map, "timestamp"));
+            day.setTempMin(getDouble(map, "tempMin"));
+            day.setTempMax(getDouble(map, "tempMax"));
+            day.setTempAvg(getDouble(map, "tempAvg"));
+            day.setHumidity(getInt(map, "humidity"));
+            day.setPop(getDouble(map, "pop"));
+            day.setRain(getDouble(map, "rain"));
+            if (map.containsKey("weather")) {
+                day.setWeather(parseDayDetailWeatherCondition((Map<String, Object>) map.get("weather")));
+            }
+            return day;
+        }
+
+        private DayDetailData.HourlyData parseHourlyData(Map<String, Object> map) {
+            DayDetailData.HourlyData hourly = new DayDetailData.HourlyData();
+            hourly.setTimestamp(getLong(map, "timestamp"));
+            hourly.setTemp(getDouble(map, "temp"));
+            hourly.setPop(getDouble(map, "pop"));
+            hourly.setHumidity(getInt(map, "humidity"));
+            if (map.containsKey("weather")) {
+                hourly.setWeather(parseDayDetailWeatherCondition((Map<String, Object>) map.get("weather")));
+            }
+            return hourly;
+        }
+
+        private DayDetailData.TodayData parseTodayData(Map<String, Object> map) {
+            DayDetailData.TodayData today = new DayDetailData.TodayData();
+            today.setTempAvg(getDouble(map, "tempAvg"));
+            today.setHumidity(getInt(map, "humidity"));
+            today.setRain(getDouble(map, "rain"));
+            return today;
+        }
+
+        private DayDetailData.WeatherCondition parseDayDetailWeatherCondition(Map<String, Object> map) {
+            DayDetailData.WeatherCondition weather = new DayDetailData.WeatherCondition();
+            weather.setMain((String) map.get("main"));
+            weather.setIcon((String) map.get("icon"));
+            return weather;
+        }
+
+        private static double getDouble(Map<String, Object> map, String key) {
+            Object value = map.get(key);
+            return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+        }
+
+        private static int getInt(Map<String, Object> map, String key) {
+            Object value = map.get(key);
+            return value instanceof Number ? ((Number) value).intValue() : 0;
+        }
+
+        private static long getLong(Map<String, Object> map, String key) {
+            Object value = map.get(key);
+            return value instanceof Number ? ((Number) value).longValue() : 0L;
+        }
+
+        private static class Response {
+            boolean success;
+            String error;
+            Object data;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.weather.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control between receiving a packet and handling it.
+ *
+ * At most maxQueued requests may be waiting or in progress at once; past that, packets
+ * are shed on the receive thread with a "server busy" reply, before any JSON parsing.
+ * A request that waited longer than maxQueueMillis before a worker picked it up is
+ * answered busy too, and one that waited longer than the client said it would wait is
+ * dropped without an answer, since nobody is listening for it any more.
+ *
+ * Busy replies carry retryAfterMs, twice the recent average queue wait, so clients back
+ * off for about as long as the backlog takes to drain.
+ */
+public class AdmissionControl {
+    private static final long MIN_RETRY_AFTER_MS = 100;
+    private static final long MAX_RETRY_AFTER_MS = 5000;
+    private static final double WAIT_SMOOTHING = 0.1;
+    private static final byte[] REQUEST_ID_FIELD = "\"requestId\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NACK_TYPE = "\"NACK\"".getBytes(StandardCharsets.US_ASCII);
+
+    private final int maxQueued;
+    private final long maxQueueMillis;
+    private final Semaphore slots;
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+    private volatile double averageWaitMillis;
+
+    public AdmissionControl(int maxQueued, long maxQueueMillis) {
+        this.maxQueued = maxQueued;
+        this.maxQueueMillis = maxQueueMillis;
+        this.slots = new Semaphore(maxQueued);
+    }
+
+    /**
+     * Take a slot for a received packet
+     *
+     * @return false if the server is full and the packet should be shed
+     */
+    public boolean tryAdmit() {
+        if (slots.tryAcquire()) {
+            admitted.incrementAndGet();
+            return true;
+        }
+        shed.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Give back the slot of an admitted packet once it has been handled
+     */
+    public void release() {
+        slots.release();
+    }
+
+    /**
+     * Record how long an admitted request waited for a worker
+     *
+     * @return false if it waited past the queue deadline and should be answered busy
+     */
+    public boolean checkWait(long waitedMillis) {
+        // Unsynchronized: a lost update only blurs the estimate a little
+        averageWaitMillis += WAIT_SMOOTHING * (waitedMillis - averageWaitMillis);
+        if (waitedMillis > maxQueueMillis) {
+            expired.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Count a request dropped because the client had already given up on it
+     */
+    public void recordAbandoned() {
+        abandoned.incrementAndGet();
+    }
+
+    /**
+     * How long a client told "busy" should wait before trying again
+     */
+    public long retryAfterMillis() {
+        long estimate = Math.round(2 * averageWaitMillis);
+        return Math.max(MIN_RETRY_AFTER_MS, Math.min(MAX_RETRY_AFTER_MS, estimate));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxQueued", maxQueued);
+        stats.put("maxQueueMs", maxQueueMillis);
+        stats.put("queued", maxQueued - slots.availablePermits());
+        stats.put("admitted", admitted.get());
+        stats.put("shed", shed.get());
+        stats.put("expired", expired.get());
+        stats.put("abandoned", abandoned.get());
+        stats.put("averageWaitMs", Math.round(averageWaitMillis * 10) / 10.0);
+        return stats;
+    }
+
+    /**
+     * The requestId of a JSON request without parsing it, or 0 if there is none
+     */
+    public static int peekRequestId(ByteBuffer packet) {
+        byte[] data = packet.array();
+        int start = packet.arrayOffset() + packet.position();
+        int end = start + packet.remaining();
+        int at = indexOf(data, start, end, REQUEST_ID_FIELD);
+        if (at < 0) {
+            return 0;
+        }
+        long id = 0;
+        for (int i = at + REQUEST_ID_FIELD.length; i < end && data[i] >= '0' && data[i] <= '9'; i++) {
+            id = id * 10 + (data[i] - '0');
+            if (id > Integer.MAX_VALUE) {
+                return 0;
+            }
+        }
+        return (int) id;
+    }
+
+    /**
+     * Whether a JSON request looks like a NACK, without parsing it
+     */
+    public static boolean peekIsNack(ByteBuffer packet) {
+        int start = packet.arrayOffset() + packet.position();
+        return indexOf(packet.array(), start, start + packet.remaining(), NACK_TYPE) >= 0;
+    }
+
+    private static int indexOf(byte[] data, int from, int to, byte[] pattern) {
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,221 @@
+package com.weather.server;
+
+import com.weather.server.model.CurrentWeatherPayload;
+import com.weather.server.model.DayDetailPayload;
+import com.weather.server.model.WeatherSummary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of forecast payloads, sent when a client asks for encoding "BINARY".
+ *
+ * Layout (big-endian): version u8 | kind u8 | dictionary | body.
+ * The dictionary is a u8 count followed by modified-UTF-8 strings; every string in the body
+ * (city, timezone, condition main/description/icon) is a u8 index into it, 0xFF for null.
+ * Numbers are fixed width: f32 for measurements, i64 for absolute timestamps, i32 for
+ * timestamp deltas, u8 for humidity and counts. A series stores its first timestamp once
+ * and each entry the delta from the previous one.
+ */
+public class BinaryResponseWriter {
+    public static final int VERSION = 1;
+    public static final int KIND_CURRENT = 1;
+    public static final int KIND_DAY_DETAIL = 2;
+
+    private static final int NULL_STRING = 0xFF;
+    private static final int MAX_DICTIONARY = 0xFE;
+
+    // Presence bits of the current-weather block
+    private static final int HAS_WIND_GUST = 0x01;
+    private static final int HAS_WEATHER = 0x02;
+    private static final int HAS_TEMP_RANGE = 0x04;
+
+    /**
+     * Encode a forecast payload, or return null if it cannot be represented in binary
+     */
+    public byte[] write(Object payload) {
+        try {
+            if (payload instanceof CurrentWeatherPayload) {
+                return writeCurrent((CurrentWeatherPayload) payload);
+            } else if (payload instanceof DayDetailPayload) {
+                return writeDayDetail((DayDetailPayload) payload);
+            }
+            return null;
+        } catch (DictionaryOverflowException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] writeCurrent(CurrentWeatherPayload payload) throws IOException {
+        Dictionary dictionary = new Dictionary();
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(1024);
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+
+        body.writeByte(dictionary.index(payload.getCity()));
+        body.writeByte(dictionary.index(payload.getTimezone()));
+
+        CurrentWeatherPayload.Current current = payload.getCurrent();
+        int presence = (current.getWindGust() != null ? HAS_WIND_GUST : 0)
+                | (current.getWeather() != null ? HAS_WEATHER : 0)
+                | (current.getTempMin() != null && current.getTempMax() != null ? HAS_TEMP_RANGE : 0);
+        body.writeByte(presence);
+        body.writeFloat((float) current.getTemp());
+        body.writeFloat((float) current.getFeelsLike());
+        body.writeByte(clampByte(current.getHumidity()));
+        body.writeFloat((float) current.getPressure());
+        body.writeFloat((float) current.getWindSpeed());
+        body.writeShort(current.getWindDeg());
+        if ((presence & HAS_WIND_GUST) != 0) {
+            body.writeFloat(current.getWindGust().floatValue());
+        }
+        body.writeLong(current.getTimestamp());
+        body.writeFloat((float) current.getUvi());
+        body.writeInt(current.getVisibility());
+        if ((presence & HAS_WEATHER) != 0) {
+            writeWeather(body, dictionary, current.getWeather());
+        }
+        if ((presence & HAS_TEMP_RANGE) != 0) {
+            body.writeFloat(current.getTempMin().floatValue());
+            body.writeFloat(current.getTempMax().floatValue());
+        }
+
+        CurrentWeatherPayload.Hourly[] hourly = payload.getHourly() != null
+                ? payload.getHourly() : new CurrentWeatherPayload.Hourly[0];
+        body.writeByte(Math.min(hourly.length, 0xFF));
+        long previous = hourly.length > 0 ? hourly[0].getTimestamp() : 0;
+        if (hourly.length > 0) {
+            body.writeLong(previous);
+        }
+        for (int i = 0; i < Math.min(hourly.length, 0xFF); i++) {
+            body.writeInt((int) (hourly[i].getTimestamp() - previous));
+            previous = hourly[i].getTimestamp();
+            body.writeFloat((float) hourly[i].getTemp());
+            body.writeFloat((float) hourly[i].getPop());
+            writeWeather(body, dictionary, hourly[i].getWeather());
+        }
+
+        CurrentWeatherPayload.Daily[] daily = payload.getDaily() != null
+                ? payload.getDaily() : new CurrentWeatherPayload.Daily[0];
+        body.writeByte(Math.min(daily.length, 0xFF));
+        previous = daily.length > 0 ? daily[0].getTimestamp() : 0;
+        if (daily.length > 0) {
+            body.writeLong(previous);
+        }
+        for (int i = 0; i < Math.min(daily.length, 0xFF); i++) {
+            body.writeInt((int) (daily[i].getTimestamp() - previous));
+            previous = daily[i].getTimestamp();
+            body.writeFloat((float) daily[i].getTempMin());
+            body.writeFloat((float) daily[i].getTempMax());
+            body.writeFloat((float) daily[i].getPop());
+            body.writeByte(clampByte(daily[i].getHumidity()));
+            body.writeFloat((float) daily[i].getRain());
+            writeWeather(body, dictionary, daily[i].getWeather());
+        }
+
+        return assemble(KIND_CURRENT, dictionary, bodyBytes);
+    }
+
+    private byte[] writeDayDetail(DayDetailPayload payload) throws IOException {
+        Dictionary dictionary = new Dictionary();
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(512);
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+
+        DayDetailPayload.Day day = payload.getDay();
+        body.writeLong(day.getTimestamp());
+        body.writeFloat((float) day.getTempMin());
+        body.writeFloat((float) day.getTempMax());
+        body.writeFloat((float) day.getTempAvg());
+        body.writeByte(clampByte(day.getHumidity()));
+        body.writeFloat((float) day.getPop());
+        body.writeFloat((float) day.getRain());
+        writeWeather(body, dictionary, day.getWeather());
+
+        DayDetailPayload.Hourly[] hourly = payload.getHourly();
+        body.writeBoolean(hourly != null);
+        if (hourly != null) {
+            int count = Math.min(hourly.length, 0xFF);
+            body.writeByte(count);
+            long previous = count > 0 ? hourly[0].getTimestamp() : 0;
+            if (count > 0) {
+                body.writeLong(previous);
+            }
+            for (int i = 0; i < count; i++) {
+                body.writeInt((int) (hourly[i].getTimestamp() - previous));
+                previous = hourly[i].getTimestamp();
+                body.writeFloat((float) hourly[i].getTemp());
+                body.writeFloat((float) hourly[i].getPop());
+                body.writeByte(clampByte(hourly[i].getHumidity()));
+                writeWeather(body, dictionary, hourly[i].getWeather());
+            }
+        }
+
+        DayDetailPayload.Today today = payload.getToday();
+        body.writeBoolean(today != null);
+        if (today != null) {
+            body.writeFloat((float) today.getTempAvg());
+            body.writeByte(clampByte(today.getHumidity()));
+            body.writeFloat((float) today.getRain());
+        }
+
+        return assemble(KIND_DAY_DETAIL, dictionary, bodyBytes);
+    }
+
+    private void writeWeather(DataOutputStream body, Dictionary dictionary, WeatherSummary weather) throws IOException {
+        body.writeByte(dictionary.index(weather != null ? weather.getMain() : null));
+        body.writeByte(dictionary.index(weather != null ? weather.getDescription() : null));
+        body.writeByte(dictionary.index(weather != null ? weather.getIcon() : null));
+    }
+
+    private byte[] assemble(int kind, Dictionary dictionary, ByteArrayOutputStream body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.size() + 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        out.writeByte(kind);
+        out.writeByte(dictionary.strings.size());
+        for (String value : dictionary.strings) {
+            out.writeUTF(value);
+        }
+        body.writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int clampByte(int value) {
+        return Math.max(0, Math.min(0xFF, value));
+    }
+
+    private static final class Dictionary {
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        int index(String value) {
+            if (value == null) {
+                return NULL_STRING;
+            }
+            Integer index = indexes.get(value);
+            if (index == null) {
+                if (strings.size() >= MAX_DICTIONARY) {
+                    throw new DictionaryOverflowException();
+                }
+                index = strings.size();
+                strings.add(value);
+                indexes.put(value, index);
+            }
+            return index;
+        }
+    }
+
+    private static final class DictionaryOverflowException extends RuntimeException {
+        DictionaryOverflowException() {
+            super(null, null, false, false);
+        }
+    }
+}
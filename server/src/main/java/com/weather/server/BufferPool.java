@@ -0,0 +1,63 @@
+package com.weather.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of fixed-size receive buffers.
+ * A buffer is owned by exactly one in-flight request from receive until release,
+ * so the receive loop never overwrites bytes a handler is still decoding.
+ */
+public class BufferPool {
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> free;
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    public BufferPool(int bufferSize, int capacity) {
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Take a cleared buffer from the pool, allocating a new one only when the pool is empty
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            allocated.incrementAndGet();
+            return ByteBuffer.allocate(bufferSize);
+        }
+        reused.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Return a buffer once its request is finished. Buffers beyond capacity are left to the GC.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferSize) {
+            return;
+        }
+        buffer.clear();
+        free.offer(buffer);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getAvailable() {
+        return free.size();
+    }
+
+    public long getAllocated() {
+        return allocated.get();
+    }
+
+    public long getReused() {
+        return reused.get();
+    }
+}
@@ -0,0 +1,176 @@
+package com.weather.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Circuit breaker for calls to the upstream API.
+ *
+ * CLOSED: calls go through, and the outcome of the last WINDOW_SIZE calls is kept. A call
+ * is bad if it failed or took longer than slowCallMillis. Once at least MIN_CALLS are in
+ * the window and the share of bad calls reaches failureRate, the breaker opens.
+ * OPEN: calls are refused at once for openMillis, so callers fall back to cached or mock
+ * data instead of waiting out connect and read timeouts.
+ * HALF_OPEN: one trial call at a time; HALF_OPEN_SUCCESSES good calls in a row close the
+ * breaker again, a bad one reopens it.
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+    private static final int WINDOW_SIZE = 20;
+    private static final int MIN_CALLS = 5;
+    private static final int HALF_OPEN_SUCCESSES = 3;
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final double failureRate;
+    private final long slowCallMillis;
+    private final long openMillis;
+
+    private final boolean[] window = new boolean[WINDOW_SIZE]; // true = bad call
+    private int windowCount;
+    private int windowNext;
+    private int badInWindow;
+
+    private State state = State.CLOSED;
+    private long stateSince = System.currentTimeMillis();
+    private boolean trialInFlight;
+    private int trialSuccesses;
+    private long shortCircuited;
+    private long failures;
+    private long slowCalls;
+    private long opened;
+
+    public CircuitBreaker(String name, double failureRate, long slowCallMillis, long openMillis) {
+        this.name = name;
+        this.failureRate = failureRate;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Ask to make a call. Every true must be followed by exactly one of
+     * onSuccess, onFailure or cancel.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - stateSince < openMillis) {
+                shortCircuited++;
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                shortCircuited++;
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * The call got an answer from upstream after latencyMillis; slow answers count as bad
+     */
+    public synchronized void onSuccess(long latencyMillis) {
+        boolean slow = latencyMillis > slowCallMillis;
+        if (slow) {
+            slowCalls++;
+        }
+        record(slow);
+    }
+
+    /**
+     * The call failed: upstream unreachable, timed out or answered with a server error
+     */
+    public synchronized void onFailure() {
+        failures++;
+        record(true);
+    }
+
+    /**
+     * A permitted call was not made after all
+     */
+    public synchronized void cancel() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        stats.put("stateForMs", System.currentTimeMillis() - stateSince);
+        stats.put("windowCalls", windowCount);
+        stats.put("windowBadRate", windowCount == 0 ? 0.0 : Math.round(100.0 * badInWindow / windowCount) / 100.0);
+        stats.put("failures", failures);
+        stats.put("slowCalls", slowCalls);
+        stats.put("opened", opened);
+        stats.put("shortCircuited", shortCircuited);
+        return stats;
+    }
+
+    private void record(boolean bad) {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            if (bad) {
+                transition(State.OPEN);
+            } else if (++trialSuccesses >= HALF_OPEN_SUCCESSES) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // A call that started before the breaker opened
+            return;
+        }
+        if (windowCount == WINDOW_SIZE) {
+            if (window[windowNext]) {
+                badInWindow--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = bad;
+        if (bad) {
+            badInWindow++;
+        }
+        windowNext = (windowNext + 1) % WINDOW_SIZE;
+        if (windowCount >= MIN_CALLS && badInWindow >= failureRate * windowCount) {
+            transition(State.OPEN);
+        }
+    }
+
+    private void transition(State next) {
+        logger.warn("Circuit breaker {}: {} -> {}", name, state, next);
+        state = next;
+        stateSince = System.currentTimeMillis();
+        trialInFlight = false;
+        trialSuccesses = 0;
+        if (next == State.OPEN) {
+            opened++;
+        } else if (next == State.CLOSED) {
+            windowCount = 0;
+            windowNext = 0;
+            badInWindow = 0;
+        }
+    }
+
+    /**
+     * An upstream call was not made because the circuit is open
+     */
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.weather.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How often each city has been asked for recently, and when it was last asked for.
+ * Counts are halved every DECAY_INTERVAL_MS, so a city that was popular yesterday fades
+ * out, and cities that decay to zero are forgotten. Keyed like ForecastCache.
+ */
+public class CityPopularity {
+    private static final long DECAY_INTERVAL_MS = 10 * 60 * 1000;
+    private static final long TOP_REFRESH_MS = 1000;
+
+    private final int maxCities;
+    private final Map<String, Tally> counts = new ConcurrentHashMap<>();
+    private final AtomicLong nextDecayAt = new AtomicLong(System.currentTimeMillis() + DECAY_INTERVAL_MS);
+    private volatile Ranking ranking = new Ranking(Collections.emptyList(), 0);
+
+    public CityPopularity(int maxCities) {
+        this.maxCities = maxCities;
+    }
+
+    public void record(String city) {
+        long now = System.currentTimeMillis();
+        long decayAt = nextDecayAt.get();
+        if (now >= decayAt && nextDecayAt.compareAndSet(decayAt, now + DECAY_INTERVAL_MS)) {
+            decay();
+        }
+        String key = ForecastCache.normalize(city);
+        Tally tally = counts.get(key);
+        if (tally == null) {
+            if (counts.size() >= maxCities) {
+                // Full: a city seen for the first time could not be among the most popular yet
+                return;
+            }
+            tally = counts.computeIfAbsent(key, k -> new Tally());
+        }
+        tally.count.incrementAndGet();
+        tally.lastRequestedAt = now;
+    }
+
+    /**
+     * When the city was last asked for, in epoch milliseconds, or 0 if it is not tracked
+     */
+    public long lastRequestedAt(String city) {
+        Tally tally = counts.get(ForecastCache.normalize(city));
+        return tally != null ? tally.lastRequestedAt : 0;
+    }
+
+    /**
+     * Whether the city is among the topN most requested
+     */
+    public boolean isPopular(String city, int topN) {
+        Integer position = ranking().positions.get(ForecastCache.normalize(city));
+        return position != null && position < topN;
+    }
+
+    /**
+     * The n most requested cities, most requested first
+     */
+    public List<String> topCities(int n) {
+        List<String> cities = ranking().cities;
+        return cities.size() <= n ? cities : cities.subList(0, n);
+    }
+
+    public int size() {
+        return counts.size();
+    }
+
+    /**
+     * All tracked cities by count, recomputed at most every TOP_REFRESH_MS
+     */
+    private Ranking ranking() {
+        Ranking current = ranking;
+        long now = System.currentTimeMillis();
+        if (now - current.computedAt < TOP_REFRESH_MS) {
+            return current;
+        }
+        List<Map.Entry<String, Long>> snapshot = new ArrayList<>(counts.size());
+        for (Map.Entry<String, Tally> entry : counts.entrySet()) {
+            snapshot.add(Map.entry(entry.getKey(), entry.getValue().count.get()));
+        }
+        snapshot.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        List<String> cities = new ArrayList<>(snapshot.size());
+        for (Map.Entry<String, Long> entry : snapshot) {
+            cities.add(entry.getKey());
+        }
+        current = new Ranking(Collections.unmodifiableList(cities), now);
+        ranking = current;
+        return current;
+    }
+
+    private void decay() {
+        counts.entrySet().removeIf(entry -> entry.getValue().count.updateAndGet(count -> count / 2) == 0);
+    }
+
+    private static final class Tally {
+        private final AtomicLong count = new AtomicLong();
+        private volatile long lastRequestedAt;
+    }
+
+    private static final class Ranking {
+        private final List<String> cities;
+        private final Map<String, Integer> positions = new HashMap<>();
+        private final long computedAt;
+
+        Ranking(List<String> cities, long computedAt) {
+            this.cities = cities;
+            this.computedAt = computedAt;
+            for (int i = 0; i < cities.size(); i++) {
+                positions.put(cities.get(i), i);
+            }
+        }
+    }
+}
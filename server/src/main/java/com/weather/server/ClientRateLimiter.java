@@ -0,0 +1,151 @@
+package com.weather.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket per client address, checked on the receive thread before a packet is
+ * parsed or queued, so one client looping on requests cannot use up the workers or the
+ * upstream quota. Over-limit packets are dropped without a reply.
+ *
+ * A bucket that has been idle long enough to refill completely is no different from a
+ * new one, so buckets are swept once idle that long. At most maxClients are tracked;
+ * while the map is full, new clients share one overflow bucket.
+ */
+public class ClientRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(ClientRateLimiter.class);
+    private static final long SWEEP_INTERVAL_MS = 10000;
+
+    private final double permitsPerSecond;
+    private final double burst;
+    private final int maxClients;
+    private final long idleNanos;
+    private final Map<InetAddress, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Bucket overflow;
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    private volatile long nextSweepAt;
+
+    /**
+     * @param permitsPerSecond sustained packets per second per client; 0 or less disables limiting
+     * @param burst packets a client may send at once after being idle
+     */
+    public ClientRateLimiter(double permitsPerSecond, double burst, int maxClients) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.maxClients = maxClients;
+        this.idleNanos = permitsPerSecond > 0 ? (long) (this.burst / permitsPerSecond * 1e9) : 0;
+        long now = System.nanoTime();
+        this.overflow = new Bucket(this.burst, now);
+        this.nextSweepAt = now;
+    }
+
+    public boolean isEnabled() {
+        return permitsPerSecond > 0;
+    }
+
+    /**
+     * Take a token for a packet from this address
+     *
+     * @return false if the client is over its limit and the packet should be dropped
+     */
+    public boolean tryAcquire(InetAddress client) {
+        if (!isEnabled()) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - nextSweepAt >= 0) {
+            sweep(now);
+        }
+        Bucket bucket = buckets.get(client);
+        if (bucket == null) {
+            if (buckets.size() >= maxClients) {
+                overflowed.incrementAndGet();
+                bucket = overflow;
+            } else {
+                bucket = buckets.computeIfAbsent(client, address -> new Bucket(burst, now));
+            }
+        }
+        if (bucket.tryTake(now)) {
+            allowed.incrementAndGet();
+            return true;
+        }
+        throttled.incrementAndGet();
+        if (bucket.markThrottled()) {
+            logger.warn("Rate limiting {}: over {}/s (burst {})", bucket == overflow ? "new clients" : client,
+                    permitsPerSecond, burst);
+        }
+        return false;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("permitsPerSecond", permitsPerSecond);
+        stats.put("burst", burst);
+        stats.put("clients", buckets.size());
+        stats.put("allowed", allowed.get());
+        stats.put("throttled", throttled.get());
+        stats.put("overflowed", overflowed.get());
+        return stats;
+    }
+
+    /**
+     * Drop buckets idle long enough to have refilled completely
+     */
+    private void sweep(long now) {
+        nextSweepAt = now + SWEEP_INTERVAL_MS * 1000000;
+        Iterator<Bucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().lastRefill() >= idleNanos) {
+                it.remove();
+            }
+        }
+    }
+
+    private final class Bucket {
+        private double tokens;
+        private long lastRefill;
+        private boolean warned;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        synchronized boolean tryTake(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * permitsPerSecond);
+                lastRefill = now;
+            }
+            if (tokens >= 1) {
+                tokens--;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return true the first time this bucket throttles, so each client is logged once
+         * until it goes idle and its bucket is swept
+         */
+        synchronized boolean markThrottled() {
+            if (warned) {
+                return false;
+            }
+            warned = true;
+            return true;
+        }
+
+        synchronized long lastRefill() {
+            return lastRefill;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.weather.server;
+
+/**
+ * Encoded response payload together with the fragment-header flags that describe its encoding
+ */
+public final class EncodedResponse {
+    private final byte[] payload;
+    private final int flags;
+
+    public EncodedResponse(byte[] payload, int flags) {
+        this.payload = payload;
+        this.flags = flags;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+}
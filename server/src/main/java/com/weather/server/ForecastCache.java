@@ -0,0 +1,171 @@
+package com.weather.server;
+
+import com.weather.server.model.WeatherResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache of upstream forecasts keyed by normalized city name.
+ *
+ * Entries expire when the upstream data is due to change: OpenWeatherMap refreshes its
+ * model roughly every 10 minutes, so an entry lives for the TTL counted from the
+ * observation time reported in current.dt, never less than MIN_TTL_MS.
+ * When full, the least recently used entry is evicted. Expired entries are kept until
+ * then, so getStale can still offer them while a fresh forecast is being fetched or when
+ * the upstream API cannot be used.
+ */
+public class ForecastCache {
+    private static final long MIN_TTL_MS = 60000;
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, CacheEntry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ForecastCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > ForecastCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cache key for a city: lower case, trimmed, single spaces
+     */
+    public static String normalize(String city) {
+        return city.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Fresh forecast for the city, or null on a miss or expired entry
+     */
+    public WeatherResponse get(String city) {
+        String key = normalize(city);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (entry.expiresAt <= now) {
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.forecast;
+        }
+    }
+
+    /**
+     * Forecast for the city even if expired, as long as it expired less than maxStaleMillis
+     * ago, or null. For when a fresh forecast cannot be fetched, or is still being fetched.
+     */
+    public WeatherResponse getStale(String city, long maxStaleMillis) {
+        String key = normalize(city);
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry == null || entry.expiresAt + maxStaleMillis <= System.currentTimeMillis()) {
+                return null;
+            }
+            return entry.forecast;
+        }
+    }
+
+    /**
+     * Whether the city has an entry expiring within aheadMillis, or already expired, that is
+     * worth fetching again: it was stored at least MIN_TTL_MS ago, so a city whose upstream
+     * data lags behind (and so gets the minimum TTL) is not refreshed over and over, and the
+     * city was asked for (at lastRequestedAt) since, so nobody pays for an unwanted refresh
+     */
+    public boolean isDueForRefresh(String city, long aheadMillis, long lastRequestedAt) {
+        String key = normalize(city);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            return entry != null && entry.expiresAt - aheadMillis <= now && now - entry.storedAt >= MIN_TTL_MS
+                    && lastRequestedAt >= entry.storedAt;
+        }
+    }
+
+    public void put(String city, WeatherResponse forecast) {
+        long now = System.currentTimeMillis();
+        CacheEntry entry = new CacheEntry(forecast, now, now + ttlFor(forecast, now));
+        synchronized (entries) {
+            entries.put(normalize(city), entry);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("expirations", expirations.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private long ttlFor(WeatherResponse forecast, long now) {
+        if (forecast.getCurrent() == null || forecast.getCurrent().getTimestamp() <= 0) {
+            return ttlMillis;
+        }
+        long observedAt = forecast.getCurrent().getTimestamp() * 1000;
+        long remaining = observedAt + ttlMillis - now;
+        return Math.max(MIN_TTL_MS, Math.min(ttlMillis, remaining));
+    }
+
+    private static final class CacheEntry {
+        private final WeatherResponse forecast;
+        private final long storedAt;
+        private final long expiresAt;
+
+        CacheEntry(WeatherResponse forecast, long storedAt, long expiresAt) {
+            this.forecast = forecast;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.weather.server;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recently sent replies, single datagrams included, kept briefly so a client can NACK the
+ * fragments it lost and get only those resent instead of the whole response, and so a
+ * duplicate that arrives after the reply is answered from here rather than processed again.
+ * Also tracks which (client, requestId) pairs are still being processed, so duplicate
+ * copies of a request (client retransmissions and hedges) are not processed twice.
+ */
+public class FragmentCache {
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<Key> inProgress = ConcurrentHashMap.newKeySet();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    public FragmentCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    public void put(InetSocketAddress client, int requestId, byte[][] fragments) {
+        if (entries.size() >= maxEntries) {
+            evictExpired();
+            if (entries.size() >= maxEntries) {
+                // Still full: skip caching, the client falls back to a full retry
+                return;
+            }
+        }
+        entries.put(new Key(client, requestId), new Entry(fragments, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Fragments sent for this request, or null if unknown or expired
+     */
+    public byte[][] get(InetSocketAddress client, int requestId) {
+        Key key = new Key(client, requestId);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.fragments;
+    }
+
+    /**
+     * Mark a request as being processed
+     *
+     * @return false if the same request from this client is already in progress
+     */
+    public boolean begin(InetSocketAddress client, int requestId) {
+        if (inProgress.add(new Key(client, requestId))) {
+            return true;
+        }
+        duplicates.incrementAndGet();
+        return false;
+    }
+
+    public void finish(InetSocketAddress client, int requestId) {
+        inProgress.remove(new Key(client, requestId));
+    }
+
+    /**
+     * Count a duplicate request answered from already-sent fragments
+     */
+    public void recordDuplicate() {
+        duplicates.incrementAndGet();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt < now);
+    }
+
+    private static final class Key {
+        private final InetSocketAddress client;
+        private final int requestId;
+
+        Key(InetSocketAddress client, int requestId) {
+            this.client = client;
+            this.requestId = requestId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return requestId == other.requestId && client.equals(other.client);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(client, requestId);
+        }
+    }
+
+    private static final class Entry {
+        private final byte[][] fragments;
+        private final long expiresAt;
+
+        Entry(byte[][] fragments, long expiresAt) {
+            this.fragments = fragments;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.weather.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits an encoded response into numbered datagrams so large payloads are never truncated.
+ *
+ * Every response datagram starts with a 12-byte big-endian header:
+ * magic "WF" (2) | version (1) | flags (1) | requestId (4) | fragment index (2) | fragment count (2)
+ */
+public final class Fragmenter {
+    public static final byte MAGIC_0 = 'W';
+    public static final byte MAGIC_1 = 'F';
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 12;
+    public static final int MAX_FRAGMENTS = 0xFFFF;
+
+    /** Payload is zlib-deflated; inflate it before decoding */
+    public static final int FLAG_DEFLATE = 0x01;
+    /** Payload uses BinaryResponseWriter's encoding instead of JSON */
+    public static final int FLAG_BINARY = 0x02;
+    /** Payload is a JSON "server busy" reply with retryAfterMs; the request was not processed */
+    public static final int FLAG_BUSY = 0x04;
+
+    private Fragmenter() {
+    }
+
+    /**
+     * Split payload into datagrams of at most maxDatagramSize bytes, header included
+     */
+    public static byte[][] split(int requestId, int flags, byte[] payload, int maxDatagramSize) {
+        int maxChunk = maxDatagramSize - HEADER_SIZE;
+        if (maxChunk <= 0) {
+            throw new IllegalArgumentException("Datagram size too small: " + maxDatagramSize);
+        }
+        int count = Math.max(1, (payload.length + maxChunk - 1) / maxChunk);
+        if (count > MAX_FRAGMENTS) {
+            throw new IllegalArgumentException("Payload too large: " + payload.length + " bytes");
+        }
+        
+        byte[][] fragments = new byte[count][];
+        for (int index = 0; index < count; index++) {
+            int offset = index * maxChunk;
+            int length = Math.min(maxChunk, payload.length - offset);
+            ByteBuffer fragment = ByteBuffer.allocate(HEADER_SIZE + length);
+            fragment.put(MAGIC_0).put(MAGIC_1).put(VERSION).put((byte) flags);
+            fragment.putInt(requestId);
+            fragment.putShort((short) index);
+            fragment.putShort((short) count);
+            fragment.put(payload, offset, length);
+            fragments[index] = fragment.array();
+        }
+        return fragments;
+    }
+}
@@ -0,0 +1,145 @@
+package com.weather.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of city coordinates. City to lat/lon never changes, so resolved
+ * cities are kept in memory and appended to a tab-separated file
+ * (city, lat, lon, country) that is replayed at startup. Later lines win.
+ */
+public class GeocodingCache {
+    private static final Logger logger = LoggerFactory.getLogger(GeocodingCache.class);
+
+    private final Path file;
+    private final Map<String, Location> locations = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public GeocodingCache(Path file) {
+        this.file = file;
+        MockWeatherData.getCityCoordinates().forEach((city, coordinates) ->
+                locations.put(ForecastCache.normalize(city), new Location(coordinates[0], coordinates[1], "")));
+        int seeded = locations.size();
+        load();
+        logger.info("Geocoding cache ready: {} cities ({} seeded, file {})", locations.size(), seeded, file);
+    }
+
+    /**
+     * Cached location for a city, or null if it still has to be geocoded
+     */
+    public Location get(String city) {
+        Location location = locations.get(ForecastCache.normalize(city));
+        if (location == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return location;
+    }
+
+    public void put(String city, double lat, double lon, String country) {
+        String key = ForecastCache.normalize(city);
+        Location location = new Location(lat, lon, country != null ? country : "");
+        if (location.equals(locations.put(key, location))) {
+            return;
+        }
+        if (key.indexOf('\t') >= 0 || key.indexOf('\n') >= 0 || key.indexOf('\r') >= 0) {
+            return;
+        }
+        String line = key + "\t" + lat + "\t" + lon + "\t" + location.country + "\n";
+        synchronized (this) {
+            try {
+                Files.write(file, line.getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                logger.warn("Could not persist geocoding entry for {}: {}", city, e.getMessage());
+            }
+        }
+    }
+
+    public int size() {
+        return locations.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", -1);
+                if (parts.length < 3) {
+                    continue;
+                }
+                try {
+                    locations.put(parts[0], new Location(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                            parts.length > 3 ? parts[3] : ""));
+                } catch (NumberFormatException e) {
+                    logger.debug("Skipping malformed geocoding line: {}", line);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not load geocoding cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Resolved coordinates of a city
+     */
+    public static final class Location {
+        private final double lat;
+        private final double lon;
+        private final String country;
+
+        public Location(double lat, double lon, String country) {
+            this.lat = lat;
+            this.lon = lon;
+            this.country = country;
+        }
+
+        public double getLat() {
+            return lat;
+        }
+
+        public double getLon() {
+            return lon;
+        }
+
+        public String getCountry() {
+            return country;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Location)) return false;
+            Location other = (Location) o;
+            return lat == other.lat && lon == other.lon && country.equals(other.country);
+        }
+
+        @Override
+        public int hashCode() {
+            return java.util.Objects.hash(lat, lon, country);
+        }
+    }
+}
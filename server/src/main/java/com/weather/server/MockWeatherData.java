@@ -81,6 +81,17 @@ public class MockWeatherData {
         CITY_PROFILES.put("moscow", new CityProfile(12.0, 15.0, 65, "Europe/Moscow", 55.7558, 37.6173, 10800));
     }
     
+    /**
+     * Coordinates of every profiled city as {lat, lon}, keyed by lower-case name
+     */
+    public static Map<String, double[]> getCityCoordinates() {
+        Map<String, double[]> coordinates = new HashMap<>();
+        for (Map.Entry<String, CityProfile> entry : CITY_PROFILES.entrySet()) {
+            coordinates.put(entry.getKey(), new double[]{entry.getValue().lat, entry.getValue().lon});
+        }
+        return coordinates;
+    }
+    
     /**
      * Generate mock weather data for a city
      */
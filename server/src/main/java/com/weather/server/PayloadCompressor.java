@@ -0,0 +1,107 @@
+package com.weather.server;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * Deflates response payloads above a size threshold so most forecasts fit in one datagram.
+ *
+ * Deflaters hold native zlib state, so they are pooled rather than created per request.
+ * The pool is a bounded queue like BufferPool instead of a ThreadLocal: in VIRTUAL mode
+ * every request runs on a fresh thread and a per-thread Deflater would never be reused.
+ * The zlib wrapper is kept so the client's Adler-32 check catches bad reassembly.
+ */
+public class PayloadCompressor {
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+    private final int minBytes;
+    private final BlockingQueue<Codec> pool;
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    public PayloadCompressor(int minBytes, int poolSize) {
+        this.minBytes = minBytes;
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * Deflated copy of the response, or the response itself when it is small
+     * or would not shrink
+     */
+    public EncodedResponse compress(EncodedResponse response) {
+        byte[] payload = response.getPayload();
+        if (payload.length < minBytes || (response.getFlags() & Fragmenter.FLAG_DEFLATE) != 0) {
+            return response;
+        }
+
+        Codec codec = pool.poll();
+        if (codec == null) {
+            codec = new Codec();
+        }
+        try {
+            byte[] deflated = codec.deflate(payload);
+            if (deflated == null) {
+                skipped.incrementAndGet();
+                return response;
+            }
+            compressed.incrementAndGet();
+            bytesIn.addAndGet(payload.length);
+            bytesOut.addAndGet(deflated.length);
+            return new EncodedResponse(deflated, response.getFlags() | Fragmenter.FLAG_DEFLATE);
+        } finally {
+            release(codec);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("minBytes", minBytes);
+        stats.put("compressed", compressed.get());
+        stats.put("skipped", skipped.get());
+        stats.put("bytesIn", bytesIn.get());
+        stats.put("bytesOut", bytesOut.get());
+        stats.put("pooled", pool.size());
+        return stats;
+    }
+
+    private void release(Codec codec) {
+        if (codec.buffer.length > MAX_RETAINED_BUFFER_SIZE || !pool.offer(codec)) {
+            codec.deflater.end();
+        }
+    }
+
+    /**
+     * A Deflater and its output buffer, owned by one request at a time
+     */
+    private static final class Codec {
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private byte[] buffer = new byte[4096];
+
+        /**
+         * Deflated bytes, or null if the output is not smaller than the input
+         */
+        byte[] deflate(byte[] payload) {
+            if (buffer.length < payload.length) {
+                buffer = new byte[payload.length];
+            }
+            deflater.reset();
+            deflater.setInput(payload);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished() && length < payload.length) {
+                length += deflater.deflate(buffer, length, payload.length - length);
+            }
+            if (!deflater.finished() || length >= payload.length) {
+                return null;
+            }
+            return Arrays.copyOf(buffer, length);
+        }
+    }
+}
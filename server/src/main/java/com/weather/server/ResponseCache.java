@@ -0,0 +1,106 @@
+package com.weather.server;
+
+import com.weather.server.model.WeatherResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Encoded response payloads keyed by (type, city, day, encoding, compression), each tagged with the forecast
+ * it was built from. A lookup only hits while that exact forecast object is still the
+ * current one, so a refreshed forecast invalidates its payloads without any bookkeeping.
+ */
+public class ResponseCache {
+    private final int maxEntries;
+    private final Map<Key, CachedPayload> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ResponseCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, CachedPayload>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedPayload> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cached payload built from this forecast, or null
+     */
+    public EncodedResponse get(Key key, WeatherResponse forecast) {
+        CachedPayload cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached == null || cached.forecast != forecast) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached.payload;
+    }
+
+    public void put(Key key, WeatherResponse forecast, EncodedResponse payload) {
+        CachedPayload cached = new CachedPayload(forecast, payload);
+        synchronized (entries) {
+            entries.put(key, cached);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    /**
+     * Cache key; detail requests are keyed by the start of the requested day
+     */
+    public static final class Key {
+        private final String type;
+        private final String city;
+        private final long day;
+        private final boolean binary;
+        private final boolean deflate;
+
+        public Key(String type, String city, Long dayTimestamp, boolean binary, boolean deflate) {
+            this.type = type;
+            this.city = city.trim();
+            this.day = dayTimestamp != null ? dayTimestamp / 86400 : -1;
+            this.binary = binary;
+            this.deflate = deflate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return day == other.day && binary == other.binary && deflate == other.deflate && type.equals(other.type) && city.equals(other.city);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, city, day, binary, deflate);
+        }
+    }
+
+    private static final class CachedPayload {
+        private final WeatherResponse forecast;
+        private final EncodedResponse payload;
+
+        CachedPayload(WeatherResponse forecast, EncodedResponse payload) {
+            this.forecast = forecast;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.weather.server;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.weather.server.model.ClientResponse;
+import com.weather.server.model.CurrentWeatherPayload;
+import com.weather.server.model.DayDetailPayload;
+import com.weather.server.model.WeatherSummary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Encodes client responses as UTF-8 JSON, or in binary for clients that ask for it.
+ * Forecast payloads are streamed field by field with a JsonWriter into a pooled
+ * buffer; anything else (errors, stats) goes through Gson reflection.
+ *
+ * The buffers live in a bounded queue like PayloadCompressor's codecs rather than a
+ * ThreadLocal: THREAD and VIRTUAL modes run every request on a new thread, where a
+ * per-thread buffer would be allocated for one response and thrown away.
+ */
+public class ResponseWriter {
+    private static final int INITIAL_BUFFER_SIZE = 16384;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+    private final Gson gson = new Gson();
+    private final BinaryResponseWriter binaryWriter = new BinaryResponseWriter();
+    private final BlockingQueue<ReusableBuffer> pool;
+
+    public ResponseWriter(int poolSize) {
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * Encode a response, in binary when requested and the payload supports it, otherwise as JSON
+     */
+    public EncodedResponse encode(ClientResponse response, boolean binary) {
+        if (binary && response.isSuccess()) {
+            byte[] encoded = binaryWriter.write(response.getData());
+            if (encoded != null) {
+                return new EncodedResponse(encoded, Fragmenter.FLAG_BINARY);
+            }
+        }
+        return new EncodedResponse(write(response), 0);
+    }
+
+    public byte[] write(ClientResponse response) {
+        Object data = response.getData();
+        if (!(data instanceof CurrentWeatherPayload) && !(data instanceof DayDetailPayload)) {
+            return gson.toJson(response).getBytes(StandardCharsets.UTF_8);
+        }
+
+        ReusableBuffer buffer = pool.poll();
+        if (buffer == null) {
+            buffer = new ReusableBuffer();
+        }
+        try {
+            JsonWriter json = new JsonWriter(buffer);
+            json.beginObject();
+            json.name("success").value(response.isSuccess());
+            json.name("data");
+            if (data instanceof CurrentWeatherPayload) {
+                writeCurrent(json, (CurrentWeatherPayload) data);
+            } else {
+                writeDayDetail(json, (DayDetailPayload) data);
+            }
+            json.endObject();
+            json.flush();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            // Only a broken writer could fail on an in-memory stream
+            throw new UncheckedIOException(e);
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private void release(ReusableBuffer buffer) {
+        if (buffer.capacity() <= MAX_RETAINED_BUFFER_SIZE) {
+            buffer.reset();
+            pool.offer(buffer);
+        }
+    }
+
+    private void writeCurrent(JsonWriter json, CurrentWeatherPayload payload) throws IOException {
+        json.beginObject();
+
+        CurrentWeatherPayload.Current current = payload.getCurrent();
+        json.name("current").beginObject();
+        json.name("temp").value(current.getTemp());
+        json.name("feelsLike").value(current.getFeelsLike());
+        json.name("humidity").value(current.getHumidity());
+        json.name("pressure").value(current.getPressure());
+        json.name("windSpeed").value(current.getWindSpeed());
+        json.name("windDeg").value(current.getWindDeg());
+        if (current.getWindGust() != null) {
+            json.name("windGust").value(current.getWindGust());
+        }
+        json.name("timestamp").value(current.getTimestamp());
+        json.name("uvi").value(current.getUvi());
+        json.name("visibility").value(current.getVisibility());
+        writeWeather(json, current.getWeather());
+        if (current.getTempMin() != null && current.getTempMax() != null) {
+            json.name("tempRange").beginObject();
+            json.name("min").value(current.getTempMin());
+            json.name("max").value(current.getTempMax());
+            json.endObject();
+        }
+        json.endObject();
+
+        if (payload.getHourly() != null) {
+            json.name("hourly").beginArray();
+            for (CurrentWeatherPayload.Hourly hourly : payload.getHourly()) {
+                json.beginObject();
+                json.name("timestamp").value(hourly.getTimestamp());
+                json.name("temp").value(hourly.getTemp());
+                json.name("pop").value(hourly.getPop());
+                writeWeather(json, hourly.getWeather());
+                json.endObject();
+            }
+            json.endArray();
+        }
+
+        if (payload.getDaily() != null) {
+            json.name("daily").beginArray();
+            for (CurrentWeatherPayload.Daily daily : payload.getDaily()) {
+                json.beginObject();
+                json.name("timestamp").value(daily.getTimestamp());
+                json.name("tempMin").value(daily.getTempMin());
+                json.name("tempMax").value(daily.getTempMax());
+                json.name("pop").value(daily.getPop());
+                json.name("humidity").value(daily.getHumidity());
+                writeWeather(json, daily.getWeather());
+                json.name("rain").value(daily.getRain());
+                json.endObject();
+            }
+            json.endArray();
+        }
+
+        if (payload.getCity() != null) {
+            json.name("city").value(payload.getCity());
+        }
+        if (payload.getTimezone() != null) {
+            json.name("timezone").value(payload.getTimezone());
+        }
+        json.endObject();
+    }
+
+    private void writeDayDetail(JsonWriter json, DayDetailPayload payload) throws IOException {
+        json.beginObject();
+
+        DayDetailPayload.Day day = payload.getDay();
+        json.name("day").beginObject();
+        json.name("timestamp").value(day.getTimestamp());
+        json.name("tempMin").value(day.getTempMin());
+        json.name("tempMax").value(day.getTempMax());
+        json.name("tempAvg").value(day.getTempAvg());
+        json.name("humidity").value(day.getHumidity());
+        json.name("pop").value(day.getPop());
+        json.name("rain").value(day.getRain());
+        writeWeather(json, day.getWeather());
+        json.endObject();
+
+        if (payload.getHourly() != null) {
+            json.name("hourly").beginArray();
+            for (DayDetailPayload.Hourly hourly : payload.getHourly()) {
+                json.beginObject();
+                json.name("timestamp").value(hourly.getTimestamp());
+                json.name("temp").value(hourly.getTemp());
+                json.name("pop").value(hourly.getPop());
+                json.name("humidity").value(hourly.getHumidity());
+                writeWeather(json, hourly.getWeather());
+                json.endObject();
+            }
+            json.endArray();
+        }
+
+        DayDetailPayload.Today today = payload.getToday();
+        if (today != null) {
+            json.name("today").beginObject();
+            json.name("tempAvg").value(today.getTempAvg());
+            json.name("humidity").value(today.getHumidity());
+            json.name("rain").value(today.getRain());
+            json.endObject();
+        }
+        json.endObject();
+    }
+
+    private void writeWeather(JsonWriter json, WeatherSummary weather) throws IOException {
+        if (weather == null) {
+            return;
+        }
+        json.name("weather").beginObject();
+        if (weather.getMain() != null) {
+            json.name("main").value(weather.getMain());
+        }
+        if (weather.getDescription() != null) {
+            json.name("description").value(weather.getDescription());
+        }
+        if (weather.getIcon() != null) {
+            json.name("icon").value(weather.getIcon());
+        }
+        json.endObject();
+    }
+
+    /**
+     * Writer that UTF-8 encodes straight into a growable byte array, reused through the pool.
+     * An OutputStreamWriter would allocate a CharBuffer for each of the many small
+     * writes JsonWriter makes, several times the size of the output in garbage.
+     */
+    private static final class ReusableBuffer extends Writer {
+        private byte[] buf = new byte[INITIAL_BUFFER_SIZE];
+        private int count;
+        private char highSurrogate;
+
+        void reset() {
+            count = 0;
+            highSurrogate = 0;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+
+        @Override
+        public void write(int c) {
+            writeChar((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                writeChar(chars[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                writeChar(str.charAt(i));
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void writeChar(char c) {
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    put(0xF0 | codePoint >> 18);
+                    put(0x80 | codePoint >> 12 & 0x3F);
+                    put(0x80 | codePoint >> 6 & 0x3F);
+                    put(0x80 | codePoint & 0x3F);
+                    return;
+                }
+                put('?'); // Unpaired surrogate, as String.getBytes would write it
+            }
+            if (c < 0x80) {
+                put(c);
+            } else if (c < 0x800) {
+                put(0xC0 | c >> 6);
+                put(0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                put('?');
+            } else {
+                put(0xE0 | c >> 12);
+                put(0x80 | c >> 6 & 0x3F);
+                put(0x80 | c & 0x3F);
+            }
+        }
+
+        private void put(int b) {
+            if (count == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            buf[count++] = (byte) b;
+        }
+    }
+}
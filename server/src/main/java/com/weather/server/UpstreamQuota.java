@@ -0,0 +1,170 @@
+package com.weather.server;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Budget for calls to the upstream API, shared by every request thread.
+ *
+ * The per-minute budget is a token bucket holding up to callsPerMinute tokens, refilled
+ * evenly over the minute; the per-day budget is a plain counter reset at midnight UTC,
+ * when OpenWeatherMap resets its daily count. A budget of 0 or less is unlimited.
+ *
+ * Once either budget drops below reserveFraction, the rest is kept for priority calls
+ * (the most requested cities), and everything else has to make do with cached data.
+ * A 429 from upstream means our count and theirs disagree, so calls pause for a while.
+ *
+ * Background refreshes, which nobody is waiting for, may use at most backgroundFraction
+ * of the day's calls, so they cannot push the budget into its reserve on their own.
+ */
+public class UpstreamQuota {
+    private static final long DAY_MS = 24 * 60 * 60 * 1000;
+    private static final long DEFAULT_RATE_LIMITED_PAUSE_MS = 60000;
+
+    private final int callsPerMinute;
+    private final int callsPerDay;
+    private final double reserveFraction;
+    private final double backgroundFraction;
+
+    private double minuteTokens;
+    private long lastRefill;
+    private long day;
+    private int usedToday;
+    private int backgroundToday;
+    private long pausedUntil;
+    private long granted;
+    private long deniedReserve;
+    private long deniedExhausted;
+    private long rateLimited;
+
+    public UpstreamQuota(int callsPerMinute, int callsPerDay, double reserveFraction, double backgroundFraction) {
+        this.callsPerMinute = callsPerMinute;
+        this.callsPerDay = callsPerDay;
+        this.reserveFraction = reserveFraction;
+        this.backgroundFraction = backgroundFraction;
+        long now = System.currentTimeMillis();
+        this.minuteTokens = callsPerMinute;
+        this.lastRefill = now;
+        this.day = now / DAY_MS;
+    }
+
+    /**
+     * Take one call from both budgets
+     *
+     * @param priority whether the call may use the reserve kept for popular cities
+     * @return false if the call should not be made
+     */
+    public synchronized boolean tryAcquire(boolean priority) {
+        long now = System.currentTimeMillis();
+        refill(now);
+        if (now < pausedUntil || minuteLimited() && minuteTokens < 1
+                || callsPerDay > 0 && usedToday >= callsPerDay) {
+            deniedExhausted++;
+            return false;
+        }
+        if (!priority && isLow()) {
+            deniedReserve++;
+            return false;
+        }
+        if (minuteLimited()) {
+            minuteTokens--;
+        }
+        usedToday++;
+        granted++;
+        return true;
+    }
+
+    /**
+     * Give back a call taken by tryAcquire that was never made
+     */
+    public synchronized void release() {
+        long now = System.currentTimeMillis();
+        refill(now);
+        if (minuteLimited() && now >= pausedUntil) {
+            minuteTokens = Math.min(callsPerMinute, minuteTokens + 1);
+        }
+        if (usedToday > 0) {
+            usedToday--; // Already 0 if the day rolled over since
+        }
+        granted--;
+    }
+
+    /**
+     * Whether today's share for background refreshes has room for another one
+     */
+    public synchronized boolean hasBackgroundBudget() {
+        refill(System.currentTimeMillis());
+        return callsPerDay <= 0 || backgroundToday < callsPerDay * backgroundFraction;
+    }
+
+    /**
+     * Count a background refresh against today's share
+     */
+    public synchronized void recordBackground() {
+        refill(System.currentTimeMillis());
+        backgroundToday++;
+    }
+
+    /**
+     * Whether either budget is down to its reserve
+     */
+    public synchronized boolean isLow() {
+        refill(System.currentTimeMillis());
+        return minuteLimited() && minuteTokens < callsPerMinute * reserveFraction
+                || callsPerDay > 0 && callsPerDay - usedToday < callsPerDay * reserveFraction;
+    }
+
+    /**
+     * Upstream answered 429: stop calling for retryAfterMillis, or a minute if it did not say
+     */
+    public synchronized void recordRateLimited(long retryAfterMillis) {
+        rateLimited++;
+        long pause = retryAfterMillis > 0 ? retryAfterMillis : DEFAULT_RATE_LIMITED_PAUSE_MS;
+        pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + pause);
+        minuteTokens = 0;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        refill(now);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("callsPerMinute", callsPerMinute);
+        stats.put("callsPerDay", callsPerDay);
+        stats.put("minuteRemaining", minuteLimited() ? (int) minuteTokens : -1);
+        stats.put("usedToday", usedToday);
+        stats.put("backgroundToday", backgroundToday);
+        stats.put("low", isLow());
+        stats.put("pausedMs", Math.max(0, pausedUntil - now));
+        stats.put("granted", granted);
+        stats.put("deniedReserve", deniedReserve);
+        stats.put("deniedExhausted", deniedExhausted);
+        stats.put("rateLimited", rateLimited);
+        return stats;
+    }
+
+    private boolean minuteLimited() {
+        return callsPerMinute > 0;
+    }
+
+    private void refill(long now) {
+        if (now / DAY_MS != day) {
+            day = now / DAY_MS;
+            usedToday = 0;
+            backgroundToday = 0;
+        }
+        if (minuteLimited() && now > lastRefill) {
+            minuteTokens = Math.min(callsPerMinute, minuteTokens + (now - lastRefill) * callsPerMinute / 60000.0);
+        }
+        lastRefill = now;
+    }
+
+    /**
+     * An upstream call was not made because the budget does not allow it
+     */
+    public static class QuotaExceededException extends IOException {
+        public QuotaExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -10,6 +10,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 public class WeatherAPIClient {
@@ -17,36 +19,89 @@ public class WeatherAPIClient {
     
     private static final String BASE_URL = "https://api.openweathermap.org/data/2.5";
     private static final String GEOCODING_URL = "http://api.openweathermap.org/geo/1.0/direct";
+    private static final int DEFAULT_MAX_CONCURRENT_CALLS = 64;
+    private static final long PERMIT_TIMEOUT_MS = 10000;
+    private static final int DEFAULT_CALLS_PER_MINUTE = 60; // OpenWeatherMap free tier
+    private static final int DEFAULT_CALLS_PER_DAY = 1000; // One Call API free tier
+    private static final double DEFAULT_RESERVE_FRACTION = 0.2;
+    private static final double DEFAULT_BACKGROUND_FRACTION = 0.25;
+    private static final double DEFAULT_BREAKER_FAILURE_RATE = 0.5;
+    private static final long DEFAULT_BREAKER_SLOW_CALL_MS = 3000;
+    private static final long DEFAULT_BREAKER_OPEN_MS = 30000;
     
     private final String apiKey;
+    private final String baseUrl;
+    private final String geocodingUrl;
     private final OkHttpClient httpClient;
     private final Gson gson;
+    private final Semaphore upstreamPermits;
+    private final UpstreamQuota quota;
+    private final CircuitBreaker breaker;
+    private final GeocodingCache geocodingCache;
 
     public WeatherAPIClient(String apiKey) {
         this.apiKey = apiKey;
+        // Points both endpoints at another host, e.g. a stub upstream for load tests
+        String upstreamUrl = System.getProperty("weather.upstream.url");
+        this.baseUrl = upstreamUrl != null ? upstreamUrl + "/data/2.5" : BASE_URL;
+        this.geocodingUrl = upstreamUrl != null ? upstreamUrl + "/geo/1.0/direct" : GEOCODING_URL;
         this.httpClient = new OkHttpClient.Builder()
                 .connectTimeout(10, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(10, TimeUnit.SECONDS)
                 .build();
         this.gson = new Gson();
+        // Caps concurrent upstream calls no matter how many request threads are blocked on us
+        this.upstreamPermits = new Semaphore(
+                Integer.getInteger("weather.upstream.maxConcurrent", DEFAULT_MAX_CONCURRENT_CALLS), true);
+        this.quota = new UpstreamQuota(
+                Integer.getInteger("weather.upstream.callsPerMinute", DEFAULT_CALLS_PER_MINUTE),
+                Integer.getInteger("weather.upstream.callsPerDay", DEFAULT_CALLS_PER_DAY),
+                Double.parseDouble(System.getProperty("weather.upstream.reserveFraction",
+                        String.valueOf(DEFAULT_RESERVE_FRACTION))),
+                Double.parseDouble(System.getProperty("weather.upstream.backgroundFraction",
+                        String.valueOf(DEFAULT_BACKGROUND_FRACTION))));
+        this.breaker = new CircuitBreaker("upstream",
+                Double.parseDouble(System.getProperty("weather.upstream.breaker.failureRate",
+                        String.valueOf(DEFAULT_BREAKER_FAILURE_RATE))),
+                Long.getLong("weather.upstream.breaker.slowCallMs", DEFAULT_BREAKER_SLOW_CALL_MS),
+                Long.getLong("weather.upstream.breaker.openMs", DEFAULT_BREAKER_OPEN_MS));
+        this.geocodingCache = new GeocodingCache(
+                Paths.get(System.getProperty("weather.geocache.file", "geocoding-cache.tsv")));
     }
 
     /**
-     * Get coordinates for a city name
+     * Get coordinates for a city name, geocoding only cities not seen before
      */
     public double[] getCityCoordinates(String cityName) throws IOException {
-        String url = GEOCODING_URL + "?q=" + cityName + "&limit=1&appid=" + apiKey;
+        return getCityCoordinates(cityName, true);
+    }
+
+    /**
+     * @param priority whether the call may use the quota reserve kept for popular cities
+     */
+    public double[] getCityCoordinates(String cityName, boolean priority) throws IOException {
+        GeocodingCache.Location cached = geocodingCache.get(cityName);
+        if (cached != null) {
+            return new double[]{cached.getLat(), cached.getLon()};
+        }
+        
+        String url = geocodingUrl + "?q=" + cityName + "&limit=1&appid=" + apiKey;
         
         Request request = new Request.Builder()
                 .url(url)
                 .get()
                 .build();
 
+        acquireUpstreamPermit(priority);
+        long startedAt = System.nanoTime();
+        boolean answered = false;
         try (Response response = httpClient.newCall(request).execute()) {
+            answered = response.code() < 500;
             if (!response.isSuccessful()) {
                 String errorBody = response.body() != null ? response.body().string() : "";
                 logger.error("Geocoding API error: {} - {}", response.code(), errorBody);
+                recordRateLimit(response);
                 
                 // Better error messages
                 if (response.code() == 401) {
@@ -69,10 +124,13 @@ public class WeatherAPIClient {
                 throw new IOException("City not found: " + cityName);
             }
 
+            geocodingCache.put(cityName, results[0].lat, results[0].lon, results[0].country);
             return new double[]{results[0].lat, results[0].lon};
         } catch (JsonSyntaxException e) {
             logger.error("Error parsing geocoding response", e);
             throw new IOException("Invalid response from geocoding API", e);
+        } finally {
+            releaseUpstreamPermit(startedAt, answered);
         }
     }
 
@@ -80,7 +138,14 @@ public class WeatherAPIClient {
      * Get weather data for coordinates
      */
     public WeatherResponse getWeatherData(double lat, double lon) throws IOException {
-        String url = BASE_URL + "/onecall?lat=" + lat + "&lon=" + lon + 
+        return getWeatherData(lat, lon, true);
+    }
+
+    /**
+     * @param priority whether the call may use the quota reserve kept for popular cities
+     */
+    public WeatherResponse getWeatherData(double lat, double lon, boolean priority) throws IOException {
+        String url = baseUrl + "/onecall?lat=" + lat + "&lon=" + lon + 
                      "&exclude=minutely,alerts&units=metric&appid=" + apiKey;
 
         Request request = new Request.Builder()
@@ -88,10 +153,15 @@ public class WeatherAPIClient {
                 .get()
                 .build();
 
+        acquireUpstreamPermit(priority);
+        long startedAt = System.nanoTime();
+        boolean answered = false;
         try (Response response = httpClient.newCall(request).execute()) {
+            answered = response.code() < 500;
             if (!response.isSuccessful()) {
                 String errorBody = response.body() != null ? response.body().string() : "";
                 logger.error("Weather API error: {} - {}", response.code(), errorBody);
+                recordRateLimit(response);
                 
                 // Better error messages
                 if (response.code() == 401) {
@@ -116,6 +186,8 @@ public class WeatherAPIClient {
                 logger.error("Error parsing weather response", e);
                 throw new IOException("Invalid response from weather API", e);
             }
+        } finally {
+            releaseUpstreamPermit(startedAt, answered);
         }
     }
 
@@ -123,8 +195,90 @@ public class WeatherAPIClient {
      * Get weather data for a city name
      */
     public WeatherResponse getWeatherData(String cityName) throws IOException {
-        double[] coordinates = getCityCoordinates(cityName);
-        return getWeatherData(coordinates[0], coordinates[1]);
+        return getWeatherData(cityName, true);
+    }
+
+    /**
+     * Get weather data for a city name
+     *
+     * @param priority whether the calls may use the quota reserve kept for popular cities
+     */
+    public WeatherResponse getWeatherData(String cityName, boolean priority) throws IOException {
+        double[] coordinates = getCityCoordinates(cityName, priority);
+        return getWeatherData(coordinates[0], coordinates[1], priority);
+    }
+
+    public GeocodingCache getGeocodingCache() {
+        return geocodingCache;
+    }
+
+    public UpstreamQuota getQuota() {
+        return quota;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    /**
+     * Check the circuit breaker, take a call from the quota, then wait for a free upstream
+     * slot; callers fall back to cached or mock data if any of them says no. A call that
+     * gets no slot goes back to the quota and the breaker, since it never reached upstream.
+     */
+    private void acquireUpstreamPermit(boolean priority) throws IOException {
+        if (!breaker.tryAcquire()) {
+            throw new CircuitBreaker.CircuitOpenException("Upstream circuit open");
+        }
+        if (!quota.tryAcquire(priority)) {
+            breaker.cancel();
+            throw new UpstreamQuota.QuotaExceededException(quota.isLow() && !priority
+                    ? "Upstream call budget reserved for popular cities"
+                    : "Upstream call budget exhausted");
+        }
+        try {
+            if (!upstreamPermits.tryAcquire(PERMIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                quota.release();
+                breaker.cancel();
+                throw new IOException("Too many concurrent upstream requests");
+            }
+        } catch (InterruptedException e) {
+            quota.release();
+            breaker.cancel();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for upstream slot", e);
+        }
+    }
+
+    /**
+     * Give back the upstream slot and tell the breaker how the call went. Any answer below
+     * 500 shows upstream is up, even an error about our request.
+     */
+    private void releaseUpstreamPermit(long startedAt, boolean answered) {
+        upstreamPermits.release();
+        if (answered) {
+            breaker.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        } else {
+            breaker.onFailure();
+        }
+    }
+
+    /**
+     * Let the quota know upstream is rate limiting us, honouring Retry-After (seconds) if sent
+     */
+    private void recordRateLimit(Response response) {
+        if (response.code() != 429) {
+            return;
+        }
+        long retryAfterMs = 0;
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter != null) {
+            try {
+                retryAfterMs = Long.parseLong(retryAfter.trim()) * 1000;
+            } catch (NumberFormatException e) {
+                // HTTP date form; use the default pause
+            }
+        }
+        quota.recordRateLimited(retryAfterMs);
     }
 
     /**
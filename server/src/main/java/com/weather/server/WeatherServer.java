@@ -9,33 +9,128 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class WeatherServer {
     private static final Logger logger = LoggerFactory.getLogger(WeatherServer.class);
     
     private static final int DEFAULT_PORT = 8888;
     private static final int BUFFER_SIZE = 8192;
+    private static final int DEFAULT_WORKERS = 32;
+    private static final int DEFAULT_BUFFER_POOL = 256;
+    private static final int DEFAULT_DATAGRAM_SIZE = 1400; // Stays under a typical 1500-byte MTU
+    private static final long FRAGMENT_CACHE_TTL_MS = 30000;
+    private static final int DEFAULT_FRAGMENT_CACHE_MAX = 16384; // Every reply for 30s, ~550/s
+    private static final int DEFAULT_MAX_QUEUED = 256; // THREAD/NIO: matches the buffer pool, so shedding starts before it runs dry
+    // VIRTUAL: threads are cheap, so the cap is heap; the load test held 4000 slow-upstream requests in ~420 MB
+    private static final int DEFAULT_MAX_QUEUED_VIRTUAL = 4096;
+    private static final long DEFAULT_MAX_QUEUE_MS = 2000;
+    private static final double DEFAULT_RATE_LIMIT = 50; // Packets per second per client address
+    private static final double DEFAULT_RATE_BURST = 100;
+    private static final int MAX_RATE_LIMITED_CLIENTS = 65536;
+
+    /**
+     * Server engine used to receive and dispatch packets
+     */
+    public enum Mode {
+        /** Blocking DatagramSocket, one new thread per packet */
+        THREAD,
+        /** Non-blocking DatagramChannel + Selector, fixed worker pool */
+        NIO,
+        /** Blocking DatagramSocket, one virtual thread per request (Java 21+) */
+        VIRTUAL
+    }
     
     private final int port;
+    private final Mode mode;
+    private final int workerCount;
     private final WeatherService weatherService;
     private final Gson gson;
+    private final BufferPool bufferPool;
+    private final FragmentCache fragmentCache;
+    private final AdmissionControl admission;
+    private final ClientRateLimiter rateLimiter;
+    private final int datagramSize;
     private DatagramSocket socket;
-    private boolean running;
+    private DatagramChannel channel;
+    private Selector selector;
+    private ExecutorService workers;
+    private Executor dispatcher;
+    private volatile boolean running;
 
     public WeatherServer(int port, String apiKey) {
+        this(port, apiKey, Mode.THREAD, DEFAULT_WORKERS);
+    }
+
+    public WeatherServer(int port, String apiKey, Mode mode, int workerCount) {
         this.port = port;
+        this.mode = mode;
+        this.workerCount = workerCount;
         this.weatherService = new WeatherService(apiKey);
         this.gson = new Gson();
+        this.bufferPool = new BufferPool(BUFFER_SIZE,
+                Integer.getInteger("weather.server.bufferPool", DEFAULT_BUFFER_POOL));
+        this.fragmentCache = new FragmentCache(FRAGMENT_CACHE_TTL_MS,
+                Integer.getInteger("weather.server.fragmentCache.maxEntries", DEFAULT_FRAGMENT_CACHE_MAX));
+        this.admission = new AdmissionControl(
+                Integer.getInteger("weather.server.maxQueued",
+                        mode == Mode.VIRTUAL ? DEFAULT_MAX_QUEUED_VIRTUAL : DEFAULT_MAX_QUEUED),
+                Long.getLong("weather.server.maxQueueMs", DEFAULT_MAX_QUEUE_MS));
+        weatherService.addStatsSource("admission", admission::getStats);
+        this.rateLimiter = new ClientRateLimiter(
+                Double.parseDouble(System.getProperty("weather.server.rateLimit", String.valueOf(DEFAULT_RATE_LIMIT))),
+                Double.parseDouble(System.getProperty("weather.server.rateBurst", String.valueOf(DEFAULT_RATE_BURST))),
+                MAX_RATE_LIMITED_CLIENTS);
+        weatherService.addStatsSource("rateLimit", rateLimiter::getStats);
+        this.datagramSize = Math.min(BUFFER_SIZE,
+                Integer.getInteger("weather.server.datagramSize", DEFAULT_DATAGRAM_SIZE));
     }
 
-    public void start() throws SocketException {
-        socket = new DatagramSocket(port);
+    public void start() throws IOException {
         running = true;
-        logger.info("Weather Server started on port {}", port);
+        
+        Thread receiveThread;
+        if (mode == Mode.NIO) {
+            channel = DatagramChannel.open();
+            channel.bind(new InetSocketAddress(port));
+            channel.configureBlocking(false);
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+            workers = Executors.newFixedThreadPool(workerCount, namedThreadFactory("weather-worker"));
+            dispatcher = workers;
+            receiveThread = new Thread(this::selectorLoop, "weather-selector");
+            logger.info("Weather Server started on port {} (mode={}, workers={})", port, mode, workerCount);
+        } else if (mode == Mode.VIRTUAL) {
+            workers = newVirtualThreadPerTaskExecutor();
+            if (workers == null) {
+                running = false;
+                throw new IOException("Mode VIRTUAL requires Java 21 or newer (running " 
+                        + System.getProperty("java.version") + ")");
+            }
+            socket = new DatagramSocket(port);
+            dispatcher = workers;
+            receiveThread = new Thread(this::receiveLoop, "weather-receiver");
+            logger.info("Weather Server started on port {} (mode={})", port, mode);
+        } else {
+            socket = new DatagramSocket(port);
+            // Handle each request in a separate thread to avoid blocking
+            dispatcher = task -> new Thread(task).start();
+            receiveThread = new Thread(this::receiveLoop, "weather-receiver");
+            logger.info("Weather Server started on port {} (mode={})", port, mode);
+        }
         
         // Start receiving thread
-        Thread receiveThread = new Thread(this::receiveLoop);
         receiveThread.setDaemon(false);
         receiveThread.start();
     }
@@ -45,22 +140,43 @@ public class WeatherServer {
         if (socket != null && !socket.isClosed()) {
             socket.close();
         }
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (channel != null && channel.isOpen()) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Error closing channel", e);
+            }
+        }
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                    workers.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        weatherService.shutdown();
         logger.info("Weather Server stopped");
     }
 
     private void receiveLoop() {
-        byte[] buffer = new byte[BUFFER_SIZE];
-        
         while (running) {
+            ByteBuffer buffer = bufferPool.acquire();
             try {
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                DatagramPacket packet = new DatagramPacket(buffer.array(), buffer.capacity());
                 socket.receive(packet);
+                buffer.limit(packet.getLength());
                 
-                // Handle request in separate thread to avoid blocking
-                Thread handlerThread = new Thread(() -> handleRequest(packet));
-                handlerThread.start();
+                dispatch(buffer, (InetSocketAddress) packet.getSocketAddress());
                 
             } catch (IOException e) {
+                bufferPool.release(buffer);
                 if (running) {
                     logger.error("Error receiving packet", e);
                 }
@@ -68,12 +184,112 @@ public class WeatherServer {
         }
     }
 
-    private void handleRequest(DatagramPacket packet) {
-        InetAddress clientAddress = packet.getAddress();
-        int clientPort = packet.getPort();
+    private void selectorLoop() {
+        while (running) {
+            try {
+                if (selector.select() == 0) {
+                    continue;
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isReadable()) {
+                        drainChannel();
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    logger.error("Error in selector loop", e);
+                }
+            }
+        }
+        
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.warn("Error closing selector", e);
+        }
+    }
+
+    /**
+     * Read every datagram currently queued on the channel and hand each one to the worker pool
+     */
+    private void drainChannel() throws IOException {
+        while (true) {
+            ByteBuffer buffer = bufferPool.acquire();
+            SocketAddress sender;
+            try {
+                sender = channel.receive(buffer);
+            } catch (IOException e) {
+                bufferPool.release(buffer);
+                throw e;
+            }
+            if (sender == null) {
+                bufferPool.release(buffer);
+                return;
+            }
+            buffer.flip();
+            dispatch(buffer, (InetSocketAddress) sender);
+        }
+    }
+
+    /**
+     * Hand a received packet to the active executor. Packets from a client over its rate
+     * limit are dropped, and packets arriving while too many are already waiting or in
+     * progress are shed. The buffer belongs to the request until handleRequest
+     * completes, then goes back to the pool.
+     */
+    private void dispatch(ByteBuffer packet, InetSocketAddress client) {
+        if (!rateLimiter.tryAcquire(client.getAddress())) {
+            bufferPool.release(packet);
+            return;
+        }
+        if (!admission.tryAdmit()) {
+            shed(packet, client);
+            bufferPool.release(packet);
+            return;
+        }
+        long receivedAt = System.nanoTime();
+        try {
+            dispatcher.execute(() -> {
+                try {
+                    handleRequest(packet, client, receivedAt);
+                } finally {
+                    admission.release();
+                    bufferPool.release(packet);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            bufferPool.release(packet);
+            if (running) {
+                logger.warn("Dropped request from {}: executor rejected task", client);
+            }
+        }
+    }
+
+    /**
+     * Answer a packet the server has no room for with "busy", without parsing it.
+     * NACKs and requests without an id are dropped; the client retries those anyway.
+     */
+    private void shed(ByteBuffer packet, InetSocketAddress client) {
+        int requestId = AdmissionControl.peekRequestId(packet);
+        if (requestId == 0 || AdmissionControl.peekIsNack(packet)) {
+            return;
+        }
+        logger.debug("Shedding request {} from {}: server full", requestId, client);
+        sendBusy(client, requestId);
+    }
+
+    private void handleRequest(ByteBuffer packet, InetSocketAddress client, long receivedAt) {
+        InetAddress clientAddress = client.getAddress();
+        int clientPort = client.getPort();
+        int requestId = 0;
         
         try {
-            String requestJson = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+            String requestJson = new String(packet.array(), packet.arrayOffset() + packet.position(),
+                    packet.remaining(), StandardCharsets.UTF_8);
             logger.debug("Received request from {}:{} - {}", clientAddress, clientPort, requestJson);
             
             // Parse request
@@ -82,56 +298,164 @@ public class WeatherServer {
                 request = gson.fromJson(requestJson, ClientRequest.class);
             } catch (JsonSyntaxException e) {
                 logger.error("Invalid JSON request", e);
-                sendErrorResponse(clientAddress, clientPort, "Invalid JSON format");
+                sendErrorResponse(client, 0, "Invalid JSON format");
                 return;
             }
+            if (request == null) {
+                sendErrorResponse(client, 0, "Invalid request format");
+                return;
+            }
+            requestId = request.getRequestId();
             
-            // Process request
-            ClientResponse response = weatherService.processRequest(request);
+            // Selective retransmission of lost fragments
+            if ("NACK".equals(request.getType())) {
+                resendFragments(client, request);
+                return;
+            }
+            
+            // Duplicate of a request we already answered or are still working on
+            // (client retransmission or hedge): never process it twice.
+            // Resending a sent reply is cheap, so it skips the queue-time checks.
+            if (requestId != 0) {
+                byte[][] sent = fragmentCache.get(client, requestId);
+                if (sent != null) {
+                    fragmentCache.recordDuplicate();
+                    for (byte[] fragment : sent) {
+                        send(client, fragment, fragment.length);
+                    }
+                    return;
+                }
+            }
+            
+            // Queue-time deadline: don't work for a client that has given up, and tell
+            // the others to back off rather than let the backlog grow
+            long waitedMs = (System.nanoTime() - receivedAt) / 1000000;
+            if (request.getTimeoutMs() != null && waitedMs >= request.getTimeoutMs()) {
+                admission.recordAbandoned();
+                logger.debug("Dropping request {} from {}: queued {}ms, client gave up after {}ms",
+                        requestId, client, waitedMs, request.getTimeoutMs());
+                return;
+            }
+            if (!admission.checkWait(waitedMs)) {
+                logger.debug("Request {} from {} queued {}ms, answering busy", requestId, client, waitedMs);
+                sendBusy(client, requestId);
+                return;
+            }
+            if (requestId != 0 && !fragmentCache.begin(client, requestId)) {
+                logger.debug("Dropping duplicate of in-progress request {} from {}", requestId, client);
+                return;
+            }
             
-            // Send response
-            sendResponse(clientAddress, clientPort, response);
+            try {
+                // Process request
+                EncodedResponse payload = weatherService.processRequestEncoded(request);
+                
+                // Send response
+                sendPayload(client, requestId, payload);
+            } finally {
+                if (requestId != 0) {
+                    fragmentCache.finish(client, requestId);
+                }
+            }
             
         } catch (Exception e) {
             logger.error("Error handling request", e);
-            sendErrorResponse(clientAddress, clientPort, "Server error: " + e.getMessage());
+            sendErrorResponse(client, requestId, "Server error: " + e.getMessage());
         }
     }
 
-    private void sendResponse(InetAddress clientAddress, int clientPort, ClientResponse response) {
+    private void sendResponse(InetSocketAddress client, int requestId, ClientResponse response) {
+        sendPayload(client, requestId, weatherService.encode(response));
+    }
+
+    private void sendPayload(InetSocketAddress client, int requestId, EncodedResponse encoded) {
         try {
-            String responseJson = gson.toJson(response);
-            byte[] responseData = responseJson.getBytes(StandardCharsets.UTF_8);
-            
-            // Split into chunks if too large
-            int maxChunkSize = BUFFER_SIZE - 100; // Leave some margin
-            if (responseData.length <= maxChunkSize) {
-                // Single packet
-                DatagramPacket responsePacket = new DatagramPacket(
-                    responseData, responseData.length, clientAddress, clientPort
-                );
-                socket.send(responsePacket);
-                logger.debug("Sent response to {}:{} ({} bytes)", clientAddress, clientPort, responseData.length);
-            } else {
-                // Multiple packets - send in chunks
-                // For simplicity, we'll just send error if too large
-                // In production, implement proper chunking protocol
-                logger.warn("Response too large ({} bytes), truncating", responseData.length);
-                byte[] truncated = new byte[maxChunkSize];
-                System.arraycopy(responseData, 0, truncated, 0, maxChunkSize);
-                DatagramPacket responsePacket = new DatagramPacket(
-                    truncated, truncated.length, clientAddress, clientPort
-                );
-                socket.send(responsePacket);
+            byte[] responseData = encoded.getPayload();
+            byte[][] fragments = Fragmenter.split(requestId, encoded.getFlags(), responseData, datagramSize);
+            // Kept for NACKs and so a late duplicate gets this reply again, not a second run
+            if (requestId != 0) {
+                fragmentCache.put(client, requestId, fragments);
+            }
+            for (byte[] fragment : fragments) {
+                send(client, fragment, fragment.length);
             }
+            logger.debug("Sent response to {} ({} bytes in {} fragments)", client, responseData.length, fragments.length);
         } catch (IOException e) {
             logger.error("Error sending response", e);
         }
     }
 
-    private void sendErrorResponse(InetAddress clientAddress, int clientPort, String error) {
+    private void sendErrorResponse(InetSocketAddress client, int requestId, String error) {
         ClientResponse response = new ClientResponse(false, error);
-        sendResponse(clientAddress, clientPort, response);
+        sendResponse(client, requestId, response);
+    }
+
+    /**
+     * Tell the client the request was not processed and when to try again.
+     * Always a single small JSON datagram, whatever encoding the client asked for.
+     */
+    private void sendBusy(InetSocketAddress client, int requestId) {
+        ClientResponse response = new ClientResponse(false, "Server busy");
+        response.setRetryAfterMs(admission.retryAfterMillis());
+        byte[] payload = gson.toJson(response).getBytes(StandardCharsets.UTF_8);
+        byte[] datagram = Fragmenter.split(requestId, Fragmenter.FLAG_BUSY, payload, datagramSize)[0];
+        try {
+            send(client, datagram, datagram.length);
+        } catch (IOException e) {
+            logger.debug("Could not send busy reply to {}", client, e);
+        }
+    }
+
+    /**
+     * Resend only the fragments a client reported missing. Unknown or expired
+     * requests are ignored; the client then retries the whole request.
+     */
+    private void resendFragments(InetSocketAddress client, ClientRequest nack) throws IOException {
+        byte[][] fragments = fragmentCache.get(client, nack.getRequestId());
+        if (fragments == null || nack.getMissing() == null) {
+            logger.debug("NACK from {} for unknown request {}", client, nack.getRequestId());
+            return;
+        }
+        for (int index : nack.getMissing()) {
+            if (index >= 0 && index < fragments.length) {
+                send(client, fragments[index], fragments[index].length);
+            }
+        }
+        logger.debug("Resent {} fragments of request {} to {}", nack.getMissing().length, nack.getRequestId(), client);
+    }
+
+    /**
+     * Send a datagram through whichever transport the current mode opened
+     */
+    private void send(InetSocketAddress client, byte[] data, int length) throws IOException {
+        if (channel != null) {
+            int sent = channel.send(ByteBuffer.wrap(data, 0, length), client);
+            if (sent == 0) {
+                logger.warn("Send buffer full, dropped response to {}", client);
+            }
+        } else {
+            socket.send(new DatagramPacket(data, length, client));
+        }
+    }
+
+    /**
+     * Looked up reflectively so the server still compiles for Java 11; returns null on older runtimes
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static java.util.concurrent.ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
     public static void main(String[] args) {
@@ -257,7 +581,24 @@ public class WeatherServer {
             }
         }
         
-        WeatherServer server = new WeatherServer(port, apiKey);
+        // Server engine: -Dweather.server.mode=THREAD|NIO|VIRTUAL, -Dweather.server.workers=N
+        Mode mode = Mode.THREAD;
+        String modeValue = System.getProperty("weather.server.mode", System.getenv("WEATHER_SERVER_MODE"));
+        if (modeValue != null && !modeValue.trim().isEmpty()) {
+            try {
+                mode = Mode.valueOf(modeValue.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid server mode: " + modeValue);
+                System.exit(1);
+            }
+        }
+        int workerCount = Integer.getInteger("weather.server.workers", DEFAULT_WORKERS);
+        if (workerCount <= 0) {
+            System.err.println("Invalid worker count: " + workerCount);
+            System.exit(1);
+        }
+        
+        WeatherServer server = new WeatherServer(port, apiKey, mode, workerCount);
         
         try {
             server.start();
@@ -272,7 +613,7 @@ public class WeatherServer {
             
             // Keep main thread alive
             Thread.currentThread().join();
-        } catch (SocketException e) {
+        } catch (IOException e) {
             logger.error("Failed to start server", e);
             System.exit(1);
         } catch (InterruptedException e) {
@@ -1,6 +1,5 @@
 package com.weather.server;
 
-import com.google.gson.Gson;
 import com.weather.server.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,16 +7,149 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public class WeatherService {
     private static final Logger logger = LoggerFactory.getLogger(WeatherService.class);
     
+    private static final long DEFAULT_CACHE_TTL_SECONDS = 600; // OpenWeatherMap updates about every 10 minutes
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+    private static final int DEFAULT_RESPONSE_CACHE_SIZE = 4000;
+    private static final int DEFAULT_COMPRESS_MIN_BYTES = 512;
+    private static final int DEFAULT_COMPRESSOR_POOL_SIZE = 64;
+    private static final int DEFAULT_WRITER_POOL_SIZE = 64;
+    private static final long DEFAULT_MAX_STALE_SECONDS = 3 * 3600; // Hourly and daily forecasts are still useful
+    private static final int DEFAULT_PRIORITY_CITIES = 20;
+    private static final int MAX_TRACKED_CITIES = 10000;
+    private static final long DEFAULT_REVALIDATE_SECONDS = 300;
+    private static final long DEFAULT_REFRESH_AHEAD_SECONDS = 30;
+    private static final int DEFAULT_REFRESH_THREADS = 2;
+    private static final long DEFAULT_REFRESH_RETRY_SECONDS = 30;
+    
     private final WeatherAPIClient apiClient;
-    private final Gson gson;
+    private final ForecastCache forecastCache;
+    private final ResponseCache responseCache;
+    private final Map<String, CompletableFuture<WeatherResponse>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedFetches = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+    private final AtomicLong staleRevalidated = new AtomicLong();
+    private final AtomicLong refreshedAhead = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final Map<String, Long> refreshRetryAt = new ConcurrentHashMap<>();
+    private final CityPopularity popularity = new CityPopularity(MAX_TRACKED_CITIES);
+    private final int priorityCities;
+    private final long maxStaleMillis;
+    private final long revalidateMillis;
+    private final int refreshTopCities;
+    private final long refreshAheadMillis;
+    private final long refreshRetryMillis;
+    private final ScheduledExecutorService refresher;
+    private final Map<String, Supplier<?>> statsSources = new ConcurrentHashMap<>();
+    private final ResponseWriter responseWriter;
+    private final PayloadCompressor compressor;
 
     public WeatherService(String apiKey) {
         this.apiClient = new WeatherAPIClient(apiKey);
-        this.gson = new Gson();
+        this.forecastCache = new ForecastCache(
+                Long.getLong("weather.cache.ttlSeconds", DEFAULT_CACHE_TTL_SECONDS) * 1000,
+                Integer.getInteger("weather.cache.maxEntries", DEFAULT_CACHE_SIZE));
+        this.responseCache = new ResponseCache(
+                Integer.getInteger("weather.responseCache.maxEntries", DEFAULT_RESPONSE_CACHE_SIZE));
+        this.responseWriter = new ResponseWriter(
+                Integer.getInteger("weather.writer.poolSize", DEFAULT_WRITER_POOL_SIZE));
+        this.compressor = new PayloadCompressor(
+                Integer.getInteger("weather.compress.minBytes", DEFAULT_COMPRESS_MIN_BYTES),
+                Integer.getInteger("weather.compress.poolSize", DEFAULT_COMPRESSOR_POOL_SIZE));
+        this.priorityCities = Integer.getInteger("weather.upstream.priorityCities", DEFAULT_PRIORITY_CITIES);
+        this.maxStaleMillis = Long.getLong("weather.cache.maxStaleSeconds", DEFAULT_MAX_STALE_SECONDS) * 1000;
+        this.revalidateMillis = Long.getLong("weather.cache.revalidateSeconds", DEFAULT_REVALIDATE_SECONDS) * 1000;
+        this.refreshTopCities = Integer.getInteger("weather.cache.refreshTopCities", priorityCities);
+        this.refreshAheadMillis = Long.getLong("weather.cache.refreshAheadSeconds", DEFAULT_REFRESH_AHEAD_SECONDS) * 1000;
+        this.refreshRetryMillis = Long.getLong("weather.cache.refreshRetrySeconds", DEFAULT_REFRESH_RETRY_SECONDS) * 1000;
+        this.refresher = Executors.newScheduledThreadPool(
+                Integer.getInteger("weather.cache.refreshThreads", DEFAULT_REFRESH_THREADS), daemonThreadFactory());
+        if (refreshTopCities > 0 && refreshAheadMillis > 0) {
+            long interval = Math.max(1000, refreshAheadMillis / 2);
+            refresher.scheduleWithFixedDelay(this::refreshPopularCities, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop background refreshes
+     */
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Process client request and return the encoded response payload.
+     * Successful CURRENT and DETAIL_DAY answers built from a cached forecast are kept as
+     * bytes, so repeats cost a lookup until that forecast is refreshed.
+     * Payloads are deflated when the client accepts it, before caching, so a
+     * cache hit never compresses again.
+     */
+    public EncodedResponse processRequestEncoded(ClientRequest request) {
+        if (request == null || request.getCity() == null
+                || !("CURRENT".equals(request.getType()) || "DETAIL_DAY".equals(request.getType()))) {
+            return encode(processRequest(request), request);
+        }
+        
+        try {
+            String city = request.getCity();
+            popularity.record(city);
+            WeatherResponse weatherData = fetchWeatherData(city);
+            boolean cacheable = weatherData != null;
+            if (weatherData == null) {
+                logger.info("Using mock weather data for city: {}", city);
+                weatherData = MockWeatherData.generateMockData(city);
+            }
+            
+            ResponseCache.Key key = new ResponseCache.Key(request.getType(), city, request.getDayTimestamp(),
+                    request.wantsBinary(), request.acceptsDeflate());
+            if (cacheable) {
+                EncodedResponse cached = responseCache.get(key, weatherData);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            
+            ClientResponse response = "CURRENT".equals(request.getType())
+                    ? buildCurrentWeatherResponse(city, weatherData)
+                    : buildDetailDayResponse(weatherData, request.getDayTimestamp());
+            EncodedResponse encoded = encode(response, request);
+            if (cacheable && response.isSuccess()) {
+                responseCache.put(key, weatherData, encoded);
+            }
+            return encoded;
+        } catch (Exception e) {
+            // Same mock fallback as the uncached path
+            logger.error("Unexpected error processing request, using mock data", e);
+            return encode(processRequest(request), request);
+        }
+    }
+
+    /**
+     * Encode a response as JSON with no compression, for replies that have no parsed request
+     */
+    public EncodedResponse encode(ClientResponse response) {
+        return responseWriter.encode(response, false);
+    }
+
+    private EncodedResponse encode(ClientResponse response, ClientRequest request) {
+        if (request == null) {
+            return encode(response);
+        }
+        EncodedResponse encoded = responseWriter.encode(response, request.wantsBinary());
+        return request.acceptsDeflate() ? compressor.compress(encoded) : encoded;
     }
 
     /**
@@ -25,6 +157,9 @@ public class WeatherService {
      */
     public ClientResponse processRequest(ClientRequest request) {
         try {
+            if (request != null && "STATS".equals(request.getType())) {
+                return new ClientResponse(true, getStats());
+            }
             if (request == null || request.getType() == null || request.getCity() == null) {
                 return new ClientResponse(false, "Invalid request format");
             }
@@ -57,156 +192,330 @@ public class WeatherService {
     }
 
     /**
-     * Handle current weather request
+     * Cache counters, for sizing and monitoring
      */
-    private ClientResponse handleCurrentWeatherRequest(String city) {
-        WeatherResponse weatherData = null;
-        boolean useMockData = false;
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("forecastCache", forecastCache.getStats());
+        stats.put("responseCache", responseCache.getStats());
+        stats.put("inFlightFetches", inFlight.size());
+        Map<String, Object> geocoding = new HashMap<>();
+        geocoding.put("size", apiClient.getGeocodingCache().size());
+        geocoding.put("hits", apiClient.getGeocodingCache().getHits());
+        geocoding.put("misses", apiClient.getGeocodingCache().getMisses());
+        stats.put("geocodingCache", geocoding);
+        stats.put("coalescedFetches", coalescedFetches.get());
+        stats.put("compression", compressor.getStats());
+        stats.put("upstreamQuota", apiClient.getQuota().getStats());
+        stats.put("upstreamBreaker", apiClient.getBreaker().getStats());
+        stats.put("staleServed", staleServed.get());
+        stats.put("staleRevalidated", staleRevalidated.get());
+        stats.put("refreshedAhead", refreshedAhead.get());
+        stats.put("refreshFailures", refreshFailures.get());
+        stats.put("trackedCities", popularity.size());
+        for (Map.Entry<String, Supplier<?>> source : statsSources.entrySet()) {
+            stats.put(source.getKey(), source.getValue().get());
+        }
+        return stats;
+    }
+
+    /**
+     * Include counters kept outside the service (e.g. by the server's admission control) in STATS
+     */
+    public void addStatsSource(String name, Supplier<?> source) {
+        statsSources.put(name, source);
+    }
+
+    /**
+     * Forecast for a city, from the cache when fresh, otherwise from the API.
+     * A forecast that expired less than revalidateMillis ago is returned at once while
+     * a background task fetches the new one, so callers rarely wait on upstream.
+     * Concurrent misses for the same city share one upstream fetch: the first caller
+     * fetches, the others wait on its future and get the same result or error.
+     */
+    private WeatherResponse getWeatherData(String city) throws IOException {
+        WeatherResponse cached = forecastCache.get(city);
+        if (cached != null) {
+            return cached;
+        }
+        
+        WeatherResponse stale = forecastCache.getStale(city, revalidateMillis);
+        if (stale != null) {
+            staleRevalidated.incrementAndGet();
+            refreshInBackground(city);
+            return stale;
+        }
+        
+        String key = ForecastCache.normalize(city);
+        CompletableFuture<WeatherResponse> fetch = new CompletableFuture<>();
+        CompletableFuture<WeatherResponse> existing = inFlight.putIfAbsent(key, fetch);
+        if (existing != null) {
+            coalescedFetches.incrementAndGet();
+            return await(existing);
+        }
         
         try {
-            weatherData = apiClient.getWeatherData(city);
+            // Another leader may have filled the cache between our miss and putIfAbsent
+            WeatherResponse fetched = forecastCache.get(city);
+            if (fetched == null) {
+                fetched = fetchUpstream(city);
+            }
+            fetch.complete(fetched);
+            return fetched;
+        } catch (IOException | RuntimeException e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, fetch);
+        }
+    }
+
+    /**
+     * Fetch a city's forecast on the refresher unless a fetch for it is already running,
+     * or one failed less than refreshRetryMillis ago. The task registers in inFlight like
+     * a foreground leader, so requests that miss in the meantime wait for it instead of
+     * calling upstream again; if it fails they get the stale forecast, as they would have.
+     *
+     * @return false if no refresh was started
+     */
+    private boolean refreshInBackground(String city) {
+        String key = ForecastCache.normalize(city);
+        Long retryAt = refreshRetryAt.get(key);
+        if (retryAt != null && System.currentTimeMillis() < retryAt) {
+            return false;
+        }
+        CompletableFuture<WeatherResponse> fetch = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, fetch) != null) {
+            return false;
+        }
+        Runnable task = () -> {
+            try {
+                fetch.complete(callUpstream(city));
+            } catch (IOException | RuntimeException e) {
+                refreshFailures.incrementAndGet();
+                refreshRetryAt.put(key, System.currentTimeMillis() + refreshRetryMillis);
+                logger.debug("Background refresh failed for {}: {}", city, e.getMessage());
+                WeatherResponse stale = forecastCache.getStale(city, maxStaleMillis);
+                if (stale != null) {
+                    fetch.complete(stale);
+                } else {
+                    fetch.completeExceptionally(e);
+                }
+            } finally {
+                inFlight.remove(key, fetch);
+            }
+        };
+        try {
+            refresher.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, fetch);
+            fetch.completeExceptionally(new IOException("Service shutting down", e));
+            return false;
+        }
+    }
+
+    /**
+     * Refresh the most requested cities shortly before their forecasts expire, so they are
+     * always served from cache. Only cities asked for since their forecast was stored are
+     * refreshed, so demand that has gone away stops costing calls after one TTL, and these
+     * refreshes stay within the quota's background share. Skipped while upstream is failing
+     * or the call budget is down to its reserve, which on-demand fetches need more.
+     */
+    private void refreshPopularCities() {
+        try {
+            long now = System.currentTimeMillis();
+            refreshRetryAt.values().removeIf(retryAt -> retryAt <= now);
+            UpstreamQuota quota = apiClient.getQuota();
+            if (apiClient.getBreaker().getState() != CircuitBreaker.State.CLOSED || quota.isLow()) {
+                return;
+            }
+            for (String city : popularity.topCities(refreshTopCities)) {
+                if (!quota.hasBackgroundBudget()) {
+                    return;
+                }
+                if (forecastCache.isDueForRefresh(city, refreshAheadMillis, popularity.lastRequestedAt(city))
+                        && refreshInBackground(city)) {
+                    quota.recordBackground();
+                    refreshedAhead.incrementAndGet();
+                }
+            }
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; an exception would cancel it
+            logger.error("Error refreshing popular cities", e);
+        }
+    }
+
+    /**
+     * Forecast from the API, cached on success. Only the most requested cities may use the
+     * last of the call budget; when a call cannot be made or fails, a recently expired
+     * cached forecast is served instead, and left expired so the next request tries again.
+     */
+    private WeatherResponse fetchUpstream(String city) throws IOException {
+        try {
+            return callUpstream(city);
+        } catch (IOException e) {
+            WeatherResponse stale = forecastCache.getStale(city, maxStaleMillis);
+            if (stale == null) {
+                throw e;
+            }
+            staleServed.incrementAndGet();
+            if (e instanceof CircuitBreaker.CircuitOpenException) {
+                logger.debug("Serving stale forecast for {}: {}", city, e.getMessage());
+            } else {
+                logger.info("Serving stale forecast for {}: {}", city, e.getMessage());
+            }
+            return stale;
+        }
+    }
+
+    /**
+     * Forecast from the API, cached on success, with no fallback
+     */
+    private WeatherResponse callUpstream(String city) throws IOException {
+        WeatherResponse fetched = apiClient.getWeatherData(city, popularity.isPopular(city, priorityCities));
+        forecastCache.put(city, fetched);
+        refreshRetryAt.remove(ForecastCache.normalize(city));
+        return fetched;
+    }
+
+    private static java.util.concurrent.ThreadFactory daemonThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "weather-refresh-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static WeatherResponse await(CompletableFuture<WeatherResponse> fetch) throws IOException {
+        try {
+            return fetch.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Upstream fetch failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for upstream fetch", e);
+        }
+    }
+
+    /**
+     * Forecast from cache or API, or null if the API failed and mock data should be used
+     */
+    private WeatherResponse fetchWeatherData(String city) {
+        try {
+            return getWeatherData(city);
+        } catch (CircuitBreaker.CircuitOpenException e) {
+            // Logged once by the breaker when it opened
+            logger.debug("Upstream circuit open, using mock data for {}", city);
         } catch (IOException e) {
             logger.warn("API request failed, using mock data: {}", e.getMessage());
-            useMockData = true;
-            weatherData = MockWeatherData.generateMockData(city);
         } catch (Exception e) {
             logger.error("Unexpected error fetching weather data, using mock data", e);
-            useMockData = true;
-            weatherData = MockWeatherData.generateMockData(city);
         }
-        
-        if (useMockData) {
+        return null;
+    }
+
+    /**
+     * Forecast from cache or API, falling back to mock data
+     */
+    private WeatherResponse loadWeatherData(String city) {
+        WeatherResponse weatherData = fetchWeatherData(city);
+        if (weatherData == null) {
             logger.info("Using mock weather data for city: {}", city);
+            weatherData = MockWeatherData.generateMockData(city);
+        }
+        return weatherData;
+    }
+
+    /**
+     * Handle current weather request
+     */
+    private ClientResponse handleCurrentWeatherRequest(String city) {
+        return buildCurrentWeatherResponse(city, loadWeatherData(city));
+    }
+
+    static ClientResponse buildCurrentWeatherResponse(String city, WeatherResponse weatherData) {
+        // Today's min/max (from first daily forecast)
+        Double tempMin = null;
+        Double tempMax = null;
+        if (weatherData.getDaily() != null && weatherData.getDaily().length > 0) {
+            DailyForecast today = weatherData.getDaily()[0];
+            tempMin = today.getTemp().getMin();
+            tempMax = today.getTemp().getMax();
         }
-        
-        // Build optimized response
-        Map<String, Object> responseData = new HashMap<>();
         
         // Current weather
         CurrentWeather current = weatherData.getCurrent();
-        Map<String, Object> currentData = new HashMap<>();
-        currentData.put("temp", current.getTemp());
-        currentData.put("feelsLike", current.getFeelsLike());
-        currentData.put("humidity", current.getHumidity());
-        currentData.put("pressure", current.getPressure());
-        currentData.put("windSpeed", current.getWindSpeed());
-        currentData.put("windDeg", current.getWindDeg());
-        currentData.put("windGust", current.getWindGust());
-        currentData.put("timestamp", current.getTimestamp());
-        currentData.put("uvi", current.getUvi());
-        currentData.put("visibility", current.getVisibility());
-        
+        WeatherSummary currentSummary = null;
         if (current.getWeather() != null && current.getWeather().length > 0) {
-            Map<String, Object> weather = new HashMap<>();
-            weather.put("main", current.getWeather()[0].getMain());
-            weather.put("description", current.getWeather()[0].getDescription());
-            weather.put("icon", current.getWeather()[0].getIcon());
-            currentData.put("weather", weather);
-        }
-        
-        // Daily min/max (from first daily forecast)
-        if (weatherData.getDaily() != null && weatherData.getDaily().length > 0) {
-            DailyForecast today = weatherData.getDaily()[0];
-            Map<String, Object> tempData = new HashMap<>();
-            tempData.put("min", today.getTemp().getMin());
-            tempData.put("max", today.getTemp().getMax());
-            currentData.put("tempRange", tempData);
+            CurrentWeather.WeatherCondition condition = current.getWeather()[0];
+            currentSummary = new WeatherSummary(condition.getMain(), condition.getDescription(), condition.getIcon());
         }
-        
-        responseData.put("current", currentData);
+        CurrentWeatherPayload.Current currentData = new CurrentWeatherPayload.Current(
+                current.getTemp(), current.getFeelsLike(), current.getHumidity(), current.getPressure(),
+                current.getWindSpeed(), current.getWindDeg(), current.getWindGust(), current.getTimestamp(),
+                current.getUvi(), current.getVisibility(), currentSummary, tempMin, tempMax);
         
         // Hourly forecast (48 hours)
+        CurrentWeatherPayload.Hourly[] hourlyData = null;
         if (weatherData.getHourly() != null && weatherData.getHourly().length > 0) {
             int hourlyCount = Math.min(48, weatherData.getHourly().length);
             logger.debug("Processing {} hourly forecasts", hourlyCount);
-            Map<String, Object>[] hourlyData = new Map[hourlyCount];
+            hourlyData = new CurrentWeatherPayload.Hourly[hourlyCount];
             for (int i = 0; i < hourlyCount; i++) {
                 HourlyForecast hourly = weatherData.getHourly()[i];
-                Map<String, Object> hourData = new HashMap<>();
-                hourData.put("timestamp", hourly.getTimestamp());
-                hourData.put("temp", hourly.getTemp());
-                hourData.put("pop", hourly.getPop());
-                
+                WeatherSummary summary = null;
                 if (hourly.getWeather() != null && hourly.getWeather().length > 0) {
-                    Map<String, Object> weather = new HashMap<>();
-                    weather.put("main", hourly.getWeather()[0].getMain());
-                    weather.put("icon", hourly.getWeather()[0].getIcon());
-                    hourData.put("weather", weather);
+                    summary = new WeatherSummary(hourly.getWeather()[0].getMain(), null, hourly.getWeather()[0].getIcon());
                 }
-                
-                hourlyData[i] = hourData;
+                hourlyData[i] = new CurrentWeatherPayload.Hourly(hourly.getTimestamp(), hourly.getTemp(), hourly.getPop(), summary);
             }
-            responseData.put("hourly", hourlyData);
             logger.debug("Added {} hourly forecasts to response", hourlyData.length);
         } else {
             logger.warn("No hourly forecast data available");
         }
         
         // Daily forecast (7 days)
+        CurrentWeatherPayload.Daily[] dailyData = null;
         if (weatherData.getDaily() != null && weatherData.getDaily().length > 0) {
             int dailyCount = Math.min(7, weatherData.getDaily().length);
             logger.debug("Processing {} daily forecasts", dailyCount);
-            Map<String, Object>[] dailyData = new Map[dailyCount];
+            dailyData = new CurrentWeatherPayload.Daily[dailyCount];
             for (int i = 0; i < dailyCount; i++) {
                 DailyForecast daily = weatherData.getDaily()[i];
-                Map<String, Object> dayData = new HashMap<>();
-                dayData.put("timestamp", daily.getTimestamp());
-                dayData.put("tempMin", daily.getTemp().getMin());
-                dayData.put("tempMax", daily.getTemp().getMax());
-                dayData.put("pop", daily.getPop());
-                dayData.put("humidity", daily.getHumidity());
-                
+                WeatherSummary summary = null;
                 if (daily.getWeather() != null && daily.getWeather().length > 0) {
-                    Map<String, Object> weather = new HashMap<>();
-                    weather.put("main", daily.getWeather()[0].getMain());
-                    weather.put("description", daily.getWeather()[0].getDescription());
-                    weather.put("icon", daily.getWeather()[0].getIcon());
-                    dayData.put("weather", weather);
+                    DailyForecast.WeatherCondition condition = daily.getWeather()[0];
+                    summary = new WeatherSummary(condition.getMain(), condition.getDescription(), condition.getIcon());
                 }
-                
-                if (daily.getRain() != null) {
-                    dayData.put("rain", daily.getRain().getTotal() != null ? daily.getRain().getTotal() : 0);
-                } else {
-                    dayData.put("rain", 0);
-                }
-                
-                dailyData[i] = dayData;
+                dailyData[i] = new CurrentWeatherPayload.Daily(daily.getTimestamp(), daily.getTemp().getMin(),
+                        daily.getTemp().getMax(), daily.getPop(), daily.getHumidity(), summary, rainTotal(daily));
             }
-            responseData.put("daily", dailyData);
             logger.debug("Added {} daily forecasts to response", dailyData.length);
         } else {
             logger.warn("No daily forecast data available");
         }
         
-        responseData.put("city", city);
-        responseData.put("timezone", weatherData.getTimezone());
-        
-        return new ClientResponse(true, responseData);
+        return new ClientResponse(true,
+                new CurrentWeatherPayload(city, weatherData.getTimezone(), currentData, hourlyData, dailyData));
     }
 
     /**
      * Handle detail day request
      */
     private ClientResponse handleDetailDayRequest(String city, Long dayTimestamp) {
-        WeatherResponse weatherData = null;
-        boolean useMockData = false;
-        
-        try {
-            weatherData = apiClient.getWeatherData(city);
-        } catch (IOException e) {
-            logger.warn("API request failed, using mock data: {}", e.getMessage());
-            useMockData = true;
-            weatherData = MockWeatherData.generateMockData(city);
-        } catch (Exception e) {
-            logger.error("Unexpected error fetching weather data, using mock data", e);
-            useMockData = true;
-            weatherData = MockWeatherData.generateMockData(city);
-        }
-        
-        if (useMockData) {
-            logger.info("Using mock weather data for day detail: {}", city);
-        }
-        
+        return buildDetailDayResponse(loadWeatherData(city), dayTimestamp);
+    }
+
+    static ClientResponse buildDetailDayResponse(WeatherResponse weatherData, Long dayTimestamp) {
         if (dayTimestamp == null) {
             return new ClientResponse(false, "Day timestamp is required");
         }
@@ -228,75 +537,49 @@ public class WeatherService {
         }
         
         // Get hourly data for that day
-        Map<String, Object>[] hourlyData = null;
+        DayDetailPayload.Hourly[] hourlyData = null;
         if (weatherData.getHourly() != null) {
             long targetDayStart = (dayTimestamp / 86400) * 86400;
             long targetDayEnd = targetDayStart + 86400;
             
-            java.util.List<Map<String, Object>> hourlyList = new java.util.ArrayList<>();
+            java.util.List<DayDetailPayload.Hourly> hourlyList = new java.util.ArrayList<>();
             for (HourlyForecast hourly : weatherData.getHourly()) {
                 if (hourly.getTimestamp() >= targetDayStart && hourly.getTimestamp() < targetDayEnd) {
-                    Map<String, Object> hourData = new HashMap<>();
-                    hourData.put("timestamp", hourly.getTimestamp());
-                    hourData.put("temp", hourly.getTemp());
-                    hourData.put("pop", hourly.getPop());
-                    hourData.put("humidity", hourly.getHumidity());
-                    
+                    WeatherSummary summary = null;
                     if (hourly.getWeather() != null && hourly.getWeather().length > 0) {
-                        Map<String, Object> weather = new HashMap<>();
-                        weather.put("icon", hourly.getWeather()[0].getIcon());
-                        hourData.put("weather", weather);
+                        summary = new WeatherSummary(null, null, hourly.getWeather()[0].getIcon());
                     }
-                    
-                    hourlyList.add(hourData);
+                    hourlyList.add(new DayDetailPayload.Hourly(hourly.getTimestamp(), hourly.getTemp(),
+                            hourly.getPop(), hourly.getHumidity(), summary));
                 }
             }
-            hourlyData = hourlyList.toArray(new Map[0]);
+            hourlyData = hourlyList.toArray(new DayDetailPayload.Hourly[0]);
         }
         
-        // Build response
-        Map<String, Object> responseData = new HashMap<>();
-        
         // Day data
-        Map<String, Object> dayData = new HashMap<>();
-        dayData.put("timestamp", targetDay.getTimestamp());
-        dayData.put("tempMin", targetDay.getTemp().getMin());
-        dayData.put("tempMax", targetDay.getTemp().getMax());
-        dayData.put("tempAvg", targetDay.getTemp().getDay());
-        dayData.put("humidity", targetDay.getHumidity());
-        dayData.put("pop", targetDay.getPop());
-        
-        if (targetDay.getRain() != null) {
-            dayData.put("rain", targetDay.getRain().getTotal() != null ? targetDay.getRain().getTotal() : 0);
-        } else {
-            dayData.put("rain", 0);
-        }
-        
+        WeatherSummary daySummary = null;
         if (targetDay.getWeather() != null && targetDay.getWeather().length > 0) {
-            Map<String, Object> weather = new HashMap<>();
-            weather.put("main", targetDay.getWeather()[0].getMain());
-            weather.put("icon", targetDay.getWeather()[0].getIcon());
-            dayData.put("weather", weather);
+            daySummary = new WeatherSummary(targetDay.getWeather()[0].getMain(), null, targetDay.getWeather()[0].getIcon());
         }
-        
-        responseData.put("day", dayData);
-        responseData.put("hourly", hourlyData);
+        DayDetailPayload.Day dayData = new DayDetailPayload.Day(targetDay.getTimestamp(),
+                targetDay.getTemp().getMin(), targetDay.getTemp().getMax(), targetDay.getTemp().getDay(),
+                targetDay.getHumidity(), targetDay.getPop(), rainTotal(targetDay), daySummary);
         
         // Today's data for comparison
+        DayDetailPayload.Today todayData = null;
         if (weatherData.getDaily() != null && weatherData.getDaily().length > 0) {
             DailyForecast today = weatherData.getDaily()[0];
-            Map<String, Object> todayData = new HashMap<>();
-            todayData.put("tempAvg", today.getTemp().getDay());
-            todayData.put("humidity", today.getHumidity());
-            if (today.getRain() != null) {
-                todayData.put("rain", today.getRain().getTotal() != null ? today.getRain().getTotal() : 0);
-            } else {
-                todayData.put("rain", 0);
-            }
-            responseData.put("today", todayData);
+            todayData = new DayDetailPayload.Today(today.getTemp().getDay(), today.getHumidity(), rainTotal(today));
         }
         
-        return new ClientResponse(true, responseData);
+        return new ClientResponse(true, new DayDetailPayload(dayData, hourlyData, todayData));
+    }
+
+    private static double rainTotal(DailyForecast daily) {
+        if (daily.getRain() != null && daily.getRain().getTotal() != null) {
+            return daily.getRain().getTotal();
+        }
+        return 0;
     }
 }
 
@@ -1,9 +1,14 @@
 package com.weather.server.model;
 
 public class ClientRequest {
-    private String type; // "CURRENT", "DETAIL_DAY"
+    private String type; // "CURRENT", "DETAIL_DAY", "NACK"
     private String city;
     private Long dayTimestamp; // For detail day request
+    private int requestId; // Echoed in every response fragment header
+    private int[] missing; // For NACK request: fragment indexes to resend
+    private String encoding; // "JSON" (default) or "BINARY"
+    private String compression; // "DEFLATE" if the client can inflate responses
+    private Long timeoutMs; // How much longer the client will wait for this response
 
     public ClientRequest() {
     }
@@ -42,5 +47,53 @@ public class ClientRequest {
     public void setDayTimestamp(Long dayTimestamp) {
         this.dayTimestamp = dayTimestamp;
     }
+
+    public int getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(int requestId) {
+        this.requestId = requestId;
+    }
+
+    public int[] getMissing() {
+        return missing;
+    }
+
+    public void setMissing(int[] missing) {
+        this.missing = missing;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public Long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(Long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public boolean acceptsDeflate() {
+        return "DEFLATE".equalsIgnoreCase(compression);
+    }
+
+    public boolean wantsBinary() {
+        return "BINARY".equalsIgnoreCase(encoding);
+    }
 }
 
@@ -4,6 +4,7 @@ public class ClientResponse {
     private boolean success;
     private String error;
     private Object data;
+    private Long retryAfterMs; // Set on "server busy" replies: when to try again
 
     public ClientResponse() {
     }
@@ -41,5 +42,13 @@ public class ClientResponse {
     public void setData(Object data) {
         this.data = data;
     }
+
+    public Long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    public void setRetryAfterMs(Long retryAfterMs) {
+        this.retryAfterMs = retryAfterMs;
+    }
 }
 
@@ -0,0 +1,205 @@
+package com.weather.server.model;
+
+/**
+ * Immutable data of a CURRENT response: current conditions, 48h hourly and 7-day forecast
+ */
+public final class CurrentWeatherPayload {
+    private final String city;
+    private final String timezone;
+    private final Current current;
+    private final Hourly[] hourly;
+    private final Daily[] daily;
+
+    public CurrentWeatherPayload(String city, String timezone, Current current, Hourly[] hourly, Daily[] daily) {
+        this.city = city;
+        this.timezone = timezone;
+        this.current = current;
+        this.hourly = hourly;
+        this.daily = daily;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getTimezone() {
+        return timezone;
+    }
+
+    public Current getCurrent() {
+        return current;
+    }
+
+    public Hourly[] getHourly() {
+        return hourly;
+    }
+
+    public Daily[] getDaily() {
+        return daily;
+    }
+
+    public static final class Current {
+        private final double temp;
+        private final double feelsLike;
+        private final int humidity;
+        private final double pressure;
+        private final double windSpeed;
+        private final int windDeg;
+        private final Double windGust;
+        private final long timestamp;
+        private final double uvi;
+        private final int visibility;
+        private final WeatherSummary weather;
+        private final Double tempMin; // Today's range, null if no daily forecast
+        private final Double tempMax;
+
+        public Current(double temp, double feelsLike, int humidity, double pressure, double windSpeed, int windDeg,
+                       Double windGust, long timestamp, double uvi, int visibility, WeatherSummary weather,
+                       Double tempMin, Double tempMax) {
+            this.temp = temp;
+            this.feelsLike = feelsLike;
+            this.humidity = humidity;
+            this.pressure = pressure;
+            this.windSpeed = windSpeed;
+            this.windDeg = windDeg;
+            this.windGust = windGust;
+            this.timestamp = timestamp;
+            this.uvi = uvi;
+            this.visibility = visibility;
+            this.weather = weather;
+            this.tempMin = tempMin;
+            this.tempMax = tempMax;
+        }
+
+        public double getTemp() {
+            return temp;
+        }
+
+        public double getFeelsLike() {
+            return feelsLike;
+        }
+
+        public int getHumidity() {
+            return humidity;
+        }
+
+        public double getPressure() {
+            return pressure;
+        }
+
+        public double getWindSpeed() {
+            return windSpeed;
+        }
+
+        public int getWindDeg() {
+            return windDeg;
+        }
+
+        public Double getWindGust() {
+            return windGust;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public double getUvi() {
+            return uvi;
+        }
+
+        public int getVisibility() {
+            return visibility;
+        }
+
+        public WeatherSummary getWeather() {
+            return weather;
+        }
+
+        public Double getTempMin() {
+            return tempMin;
+        }
+
+        public Double getTempMax() {
+            return tempMax;
+        }
+    }
+
+    public static final class Hourly {
+        private final long timestamp;
+        private final double temp;
+        private final double pop;
+        private final WeatherSummary weather;
+
+        public Hourly(long timestamp, double temp, double pop, WeatherSummary weather) {
+            this.timestamp = timestamp;
+            this.temp = temp;
+            this.pop = pop;
+            this.weather = weather;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public double getTemp() {
+            return temp;
+        }
+
+        public double getPop() {
+            return pop;
+        }
+
+        public WeatherSummary getWeather() {
+            return weather;
+        }
+    }
+
+    public static final class Daily {
+        private final long timestamp;
+        private final double tempMin;
+        private final double tempMax;
+        private final double pop;
+        private final int humidity;
+        private final WeatherSummary weather;
+        private final double rain;
+
+        public Daily(long timestamp, double tempMin, double tempMax, double pop, int humidity,
+                     WeatherSummary weather, double rain) {
+            this.timestamp = timestamp;
+            this.tempMin = tempMin;
+            this.tempMax = tempMax;
+            this.pop = pop;
+            this.humidity = humidity;
+            this.weather = weather;
+            this.rain = rain;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public double getTempMin() {
+            return tempMin;
+        }
+
+        public double getTempMax() {
+            return tempMax;
+        }
+
+        public double getPop() {
+            return pop;
+        }
+
+        public int getHumidity() {
+            return humidity;
+        }
+
+        public WeatherSummary getWeather() {
+            return weather;
+        }
+
+        public double getRain() {
+            return rain;
+        }
+    }
+}
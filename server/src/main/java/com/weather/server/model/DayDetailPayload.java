@@ -0,0 +1,143 @@
+package com.weather.server.model;
+
+/**
+ * Immutable data of a DETAIL_DAY response: one day, its hourly entries and today's values for comparison
+ */
+public final class DayDetailPayload {
+    private final Day day;
+    private final Hourly[] hourly;
+    private final Today today;
+
+    public DayDetailPayload(Day day, Hourly[] hourly, Today today) {
+        this.day = day;
+        this.hourly = hourly;
+        this.today = today;
+    }
+
+    public Day getDay() {
+        return day;
+    }
+
+    public Hourly[] getHourly() {
+        return hourly;
+    }
+
+    public Today getToday() {
+        return today;
+    }
+
+    public static final class Day {
+        private final long timestamp;
+        private final double tempMin;
+        private final double tempMax;
+        private final double tempAvg;
+        private final int humidity;
+        private final double pop;
+        private final double rain;
+        private final WeatherSummary weather;
+
+        public Day(long timestamp, double tempMin, double tempMax, double tempAvg, int humidity, double pop,
+                   double rain, WeatherSummary weather) {
+            this.timestamp = timestamp;
+            this.tempMin = tempMin;
+            this.tempMax = tempMax;
+            this.tempAvg = tempAvg;
+            this.humidity = humidity;
+            this.pop = pop;
+            this.rain = rain;
+            this.weather = weather;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public double getTempMin() {
+            return tempMin;
+        }
+
+        public double getTempMax() {
+            return tempMax;
+        }
+
+        public double getTempAvg() {
+            return tempAvg;
+        }
+
+        public int getHumidity() {
+            return humidity;
+        }
+
+        public double getPop() {
+            return pop;
+        }
+
+        public double getRain() {
+            return rain;
+        }
+
+        public WeatherSummary getWeather() {
+            return weather;
+        }
+    }
+
+    public static final class Hourly {
+        private final long timestamp;
+        private final double temp;
+        private final double pop;
+        private final int humidity;
+        private final WeatherSummary weather;
+
+        public Hourly(long timestamp, double temp, double pop, int humidity, WeatherSummary weather) {
+            this.timestamp = timestamp;
+            this.temp = temp;
+            this.pop = pop;
+            this.humidity = humidity;
+            this.weather = weather;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public double getTemp() {
+            return temp;
+        }
+
+        public double getPop() {
+            return pop;
+        }
+
+        public int getHumidity() {
+            return humidity;
+        }
+
+        public WeatherSummary getWeather() {
+            return weather;
+        }
+    }
+
+    public static final class Today {
+        private final double tempAvg;
+        private final int humidity;
+        private final double rain;
+
+        public Today(double tempAvg, int humidity, double rain) {
+            this.tempAvg = tempAvg;
+            this.humidity = humidity;
+            this.rain = rain;
+        }
+
+        public double getTempAvg() {
+            return tempAvg;
+        }
+
+        public int getHumidity() {
+            return humidity;
+        }
+
+        public double getRain() {
+            return rain;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.weather.server.model;
+
+/**
+ * Weather condition as sent to clients; any field may be null when not included
+ */
+public final class WeatherSummary {
+    private final String main;
+    private final String description;
+    private final String icon;
+
+    public WeatherSummary(String main, String description, String icon) {
+        this.main = main;
+        this.description = description;
+        this.icon = icon;
+    }
+
+    public String getMain() {
+        return main;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getIcon() {
+        return icon;
+    }
+}
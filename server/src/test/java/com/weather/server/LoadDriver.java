@@ -0,0 +1,305 @@
+package com.weather.server;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.weather.server.model.WeatherResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test for the server engines against a slow upstream.
+ *
+ * Starts a stub OpenWeatherMap on localhost that answers every call after a fixed delay,
+ * then, for each mode and concurrency level, starts a WeatherServer in this JVM and sends
+ * that many CURRENT requests for distinct cities over one ramp of upstreamDelayMs, so all
+ * of them are waiting on upstream at once. Each request makes two upstream calls
+ * (geocoding, then onecall). Quota, rate limiting, admission and the breaker's slow-call
+ * rule are switched off so only the engine limits how many requests are held.
+ *
+ * Reports per run: replies built from upstream data, replies that fell back to mock data,
+ * busy replies, requests with no reply, latency, peak platform threads and peak heap.
+ *
+ * Run with Java 21+ to include VIRTUAL:
+ * mvn -Pload test-compile exec:exec -Dload.args="THREAD,VIRTUAL 1000,4000 1000"
+ */
+public class LoadDriver {
+    private static final String MARKER = "LoadDriver/Upstream";
+    private static final int FIRST_PORT = 19800;
+    private static final long REPLY_TIMEOUT_MS = 60000;
+
+    private static final Gson gson = new Gson();
+
+    public static void main(String[] args) throws Exception {
+        String[] modes = (args.length > 0 ? args[0] : "THREAD,VIRTUAL").split(",");
+        String[] levels = (args.length > 1 ? args[1] : "1000,4000").split(",");
+        long upstreamDelayMs = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        int maxLevel = 0;
+        for (String level : levels) {
+            maxLevel = Math.max(maxLevel, Integer.parseInt(level));
+        }
+
+        HttpServer upstream = startUpstream(upstreamDelayMs);
+        System.setProperty("weather.upstream.url", "http://127.0.0.1:" + upstream.getAddress().getPort());
+        System.setProperty("weather.upstream.maxConcurrent", String.valueOf(2 * maxLevel));
+        System.setProperty("weather.upstream.callsPerMinute", "0");
+        System.setProperty("weather.upstream.callsPerDay", "0");
+        System.setProperty("weather.upstream.breaker.slowCallMs", String.valueOf(Long.MAX_VALUE));
+        System.setProperty("weather.server.rateLimit", "0");
+        System.setProperty("weather.server.maxQueued", String.valueOf(2 * maxLevel));
+        System.setProperty("weather.server.maxQueueMs", String.valueOf(REPLY_TIMEOUT_MS));
+        System.setProperty("weather.geocache.file", Files.createTempFile("load-geocache", ".tsv").toString());
+
+        System.out.printf("Upstream delay %d ms per call, 2 calls per request, Java %s%n",
+                upstreamDelayMs, System.getProperty("java.version"));
+        System.out.printf("%-8s %8s %8s %6s %6s %6s %8s %8s %8s %8s %8s%n", "mode", "requests", "upstream",
+                "mock", "busy", "lost", "p50 ms", "p99 ms", "max ms", "threads", "heap MB");
+        int port = FIRST_PORT;
+        int run = 0;
+        try {
+            for (String mode : modes) {
+                for (String level : levels) {
+                    run(WeatherServer.Mode.valueOf(mode.trim()), Integer.parseInt(level.trim()),
+                            upstreamDelayMs, port++, run++);
+                }
+            }
+        } finally {
+            upstream.stop(0);
+        }
+        System.exit(0);
+    }
+
+    private static void run(WeatherServer.Mode mode, int requests, long upstreamDelayMs, int port, int run)
+            throws Exception {
+        System.gc();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        HeapSampler heap = new HeapSampler();
+        heap.start();
+
+        WeatherServer server = new WeatherServer(port, "load-test", mode, Runtime.getRuntime().availableProcessors() * 4);
+        server.start();
+        Map<Integer, Reply> replies = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(requests);
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setReceiveBufferSize(4 * 1024 * 1024);
+            socket.setSoTimeout(200);
+            Thread receiver = new Thread(() -> receive(socket, replies, done), "load-receiver");
+            receiver.setDaemon(true);
+            receiver.start();
+
+            InetAddress localhost = InetAddress.getLoopbackAddress();
+            long rampNanos = TimeUnit.MILLISECONDS.toNanos(upstreamDelayMs);
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                long sendAt = start + rampNanos * i / requests;
+                long wait = sendAt - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                int requestId = i + 1;
+                String json = "{\"type\":\"CURRENT\",\"city\":\"load-" + run + "-" + i + "\",\"requestId\":"
+                        + requestId + ",\"encoding\":\"BINARY\"}";
+                byte[] data = json.getBytes(StandardCharsets.UTF_8);
+                replies.put(requestId, new Reply(System.nanoTime()));
+                socket.send(new DatagramPacket(data, data.length, localhost, port));
+            }
+            done.await(REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } finally {
+            server.stop();
+            heap.interrupt();
+        }
+
+        int upstreamReplies = 0;
+        int mock = 0;
+        int busy = 0;
+        int lost = 0;
+        List<Long> latencies = new ArrayList<>();
+        for (Reply reply : replies.values()) {
+            if (reply.latencyMillis < 0) {
+                lost++;
+            } else if (reply.busy) {
+                busy++;
+            } else {
+                latencies.add(reply.latencyMillis);
+                if (reply.fromUpstream) {
+                    upstreamReplies++;
+                } else {
+                    mock++;
+                }
+            }
+        }
+        Collections.sort(latencies);
+        System.out.printf("%-8s %8d %8d %6d %6d %6d %8d %8d %8d %8d %8d%n", mode, requests, upstreamReplies,
+                mock, busy, lost, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                percentile(latencies, 1.0), threads.getPeakThreadCount(), heap.peakBytes.get() >> 20);
+    }
+
+    /**
+     * Collect response fragments until the socket is closed
+     */
+    private static void receive(DatagramSocket socket, Map<Integer, Reply> replies, CountDownLatch done) {
+        byte[] buffer = new byte[65536];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (!socket.isClosed()) {
+            try {
+                socket.receive(packet);
+            } catch (SocketTimeoutException e) {
+                continue;
+            } catch (IOException e) {
+                return;
+            }
+            if (packet.getLength() < Fragmenter.HEADER_SIZE) {
+                continue;
+            }
+            ByteBuffer header = ByteBuffer.wrap(buffer, 0, Fragmenter.HEADER_SIZE);
+            int flags = header.get(3);
+            int requestId = header.getInt(4);
+            int index = header.getShort(8) & 0xFFFF;
+            int count = header.getShort(10) & 0xFFFF;
+            Reply reply = replies.get(requestId);
+            if (reply != null && reply.add(flags, index, count,
+                    new String(buffer, Fragmenter.HEADER_SIZE, packet.getLength() - Fragmenter.HEADER_SIZE,
+                            StandardCharsets.ISO_8859_1))) {
+                done.countDown();
+            }
+        }
+    }
+
+    /**
+     * Stub upstream: geocodes any city and returns a mock forecast tagged with MARKER, after delayMs
+     */
+    private static HttpServer startUpstream(long delayMs) throws IOException {
+        WeatherResponse forecast = MockWeatherData.generateMockData("load");
+        forecast.setTimezone(MARKER);
+        String forecastBody = gson.toJson(forecast);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 8192);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(delayMs);
+                String body;
+                if (exchange.getRequestURI().getPath().contains("/geo/")) {
+                    body = "[{\"name\":\"Load\",\"lat\":21.03,\"lon\":105.85,\"country\":\"VN\"}]";
+                } else {
+                    body = forecastBody;
+                }
+                respond(exchange, body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(newUpstreamExecutor());
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Virtual threads when available, so the stub's own sleeping threads do not show up
+     * in the platform thread count
+     */
+    private static ExecutorService newUpstreamExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return -1;
+        }
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(p * sorted.size()) - 1));
+    }
+
+    private static final class Reply {
+        private final long sentAt;
+        private String[] fragments;
+        private int received;
+        private boolean busy;
+        private boolean fromUpstream;
+        private volatile long latencyMillis = -1;
+
+        Reply(long sentAt) {
+            this.sentAt = sentAt;
+        }
+
+        /**
+         * @return true when this fragment completes the reply
+         */
+        synchronized boolean add(int flags, int index, int count, String payload) {
+            if (latencyMillis >= 0) {
+                return false;
+            }
+            if (fragments == null) {
+                fragments = new String[count];
+            }
+            if (index >= fragments.length || fragments[index] != null) {
+                return false;
+            }
+            fragments[index] = payload;
+            if (++received < fragments.length) {
+                return false;
+            }
+            busy = (flags & Fragmenter.FLAG_BUSY) != 0;
+            fromUpstream = String.join("", fragments).contains(MARKER);
+            latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt);
+            return true;
+        }
+    }
+
+    private static final class HeapSampler extends Thread {
+        private final AtomicLong peakBytes = new AtomicLong();
+
+        HeapSampler() {
+            super("load-heap-sampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Runtime runtime = Runtime.getRuntime();
+            while (!isInterrupted()) {
+                peakBytes.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
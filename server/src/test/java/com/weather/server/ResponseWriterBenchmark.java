@@ -0,0 +1,279 @@
+package com.weather.server;
+
+import com.google.gson.Gson;
+import com.weather.server.model.ClientResponse;
+import com.weather.server.model.CurrentWeather;
+import com.weather.server.model.DailyForecast;
+import com.weather.server.model.HourlyForecast;
+import com.weather.server.model.WeatherResponse;
+import com.sun.management.ThreadMXBean;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Building and encoding a JSON response: typed payloads streamed by ResponseWriter against
+ * the HashMap trees serialized by Gson that WeatherService used before. The NewThread
+ * variants encode on a fresh thread per operation, as THREAD and VIRTUAL modes do, so
+ * per-thread state cannot hide allocations behind one long-lived benchmark thread.
+ *
+ * mvn -Pbench test-compile exec:exec -Dbench.args="ResponseWriterBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseWriterBenchmark {
+    private final Gson gson = new Gson();
+    private final ResponseWriter writer = new ResponseWriter(64);
+    private WeatherResponse forecast;
+    private long dayTimestamp;
+
+    @Setup
+    public void setUp() {
+        forecast = MockWeatherData.generateMockData("hanoi");
+        dayTimestamp = forecast.getDaily()[1].getTimestamp();
+    }
+
+    @Benchmark
+    public byte[] currentTyped() {
+        return writer.write(WeatherService.buildCurrentWeatherResponse("Hanoi", forecast));
+    }
+
+    @Benchmark
+    public byte[] currentMaps() {
+        return gson.toJson(MapResponses.current("Hanoi", forecast)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] detailDayTyped() {
+        return writer.write(WeatherService.buildDetailDayResponse(forecast, dayTimestamp));
+    }
+
+    @Benchmark
+    public byte[] detailDayMaps() {
+        return gson.toJson(MapResponses.detailDay(forecast, dayTimestamp)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] currentTypedNewThread(WorkerAllocation allocation) throws InterruptedException {
+        return allocation.onNewThread(this::currentTyped);
+    }
+
+    @Benchmark
+    public byte[] currentMapsNewThread(WorkerAllocation allocation) throws InterruptedException {
+        return allocation.onNewThread(this::currentMaps);
+    }
+
+    /**
+     * Bytes allocated by the worker threads, and how many ran; divide for bytes per op.
+     * The gc profiler only samples threads that are still alive, so it never sees a worker
+     * that has already finished. JMH sums both counters over the iterations.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WorkerAllocation {
+        private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        private final AtomicLong bytes = new AtomicLong();
+        public long workerOps;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes.set(0);
+            workerOps = 0;
+        }
+
+        public long workerBytes() {
+            return bytes.get();
+        }
+
+        byte[] onNewThread(Supplier<byte[]> encode) throws InterruptedException {
+            byte[][] result = new byte[1][];
+            Thread thread = new Thread(() -> {
+                long before = THREADS.getCurrentThreadAllocatedBytes();
+                result[0] = encode.get();
+                bytes.addAndGet(THREADS.getCurrentThreadAllocatedBytes() - before);
+            });
+            thread.start();
+            thread.join();
+            workerOps++;
+            return result[0];
+        }
+    }
+
+    /**
+     * The map-based response building WeatherService used before typed payloads
+     */
+    static final class MapResponses {
+        private MapResponses() {
+        }
+
+        @SuppressWarnings("unchecked")
+        static ClientResponse current(String city, WeatherResponse weatherData) {
+            Map<String, Object> responseData = new HashMap<>();
+
+            CurrentWeather current = weatherData.getCurrent();
+            Map<String, Object> currentData = new HashMap<>();
+            currentData.put("temp", current.getTemp());
+            currentData.put("feelsLike", current.getFeelsLike());
+            currentData.put("humidity", current.getHumidity());
+            currentData.put("pressure", current.getPressure());
+            currentData.put("windSpeed", current.getWindSpeed());
+            currentData.put("windDeg", current.getWindDeg());
+            currentData.put("windGust", current.getWindGust());
+            currentData.put("timestamp", current.getTimestamp());
+            currentData.put("uvi", current.getUvi());
+            currentData.put("visibility", current.getVisibility());
+            if (current.getWeather() != null && current.getWeather().length > 0) {
+                Map<String, Object> weather = new HashMap<>();
+                weather.put("main", current.getWeather()[0].getMain());
+                weather.put("description", current.getWeather()[0].getDescription());
+                weather.put("icon", current.getWeather()[0].getIcon());
+                currentData.put("weather", weather);
+            }
+            if (weatherData.getDaily() != null && weatherData.getDaily().length > 0) {
+                DailyForecast today = weatherData.getDaily()[0];
+                Map<String, Object> tempData = new HashMap<>();
+                tempData.put("min", today.getTemp().getMin());
+                tempData.put("max", today.getTemp().getMax());
+                currentData.put("tempRange", tempData);
+            }
+            responseData.put("current", currentData);
+
+            if (weatherData.getHourly() != null && weatherData.getHourly().length > 0) {
+                int hourlyCount = Math.min(48, weatherData.getHourly().length);
+                Map<String, Object>[] hourlyData = new Map[hourlyCount];
+                for (int i = 0; i < hourlyCount; i++) {
+                    HourlyForecast hourly = weatherData.getHourly()[i];
+                    Map<String, Object> hourData = new HashMap<>();
+                    hourData.put("timestamp", hourly.getTimestamp());
+                    hourData.put("temp", hourly.getTemp());
+                    hourData.put("pop", hourly.getPop());
+                    if (hourly.getWeather() != null && hourly.getWeather().length > 0) {
+                        Map<String, Object> weather = new HashMap<>();
+                        weather.put("main", hourly.getWeather()[0].getMain());
+                        weather.put("icon", hourly.getWeather()[0].getIcon());
+                        hourData.put("weather", weather);
+                    }
+                    hourlyData[i] = hourData;
+                }
+                responseData.put("hourly", hourlyData);
+            }
+
+            if (weatherData.getDaily() != null && weatherData.getDaily().length > 0) {
+                int dailyCount = Math.min(7, weatherData.getDaily().length);
+                Map<String, Object>[] dailyData = new Map[dailyCount];
+                for (int i = 0; i < dailyCount; i++) {
+                    DailyForecast daily = weatherData.getDaily()[i];
+                    Map<String, Object> dayData = new HashMap<>();
+                    dayData.put("timestamp", daily.getTimestamp());
+                    dayData.put("tempMin", daily.getTemp().getMin());
+                    dayData.put("tempMax", daily.getTemp().getMax());
+                    dayData.put("pop", daily.getPop());
+                    dayData.put("humidity", daily.getHumidity());
+                    if (daily.getWeather() != null && daily.getWeather().length > 0) {
+                        Map<String, Object> weather = new HashMap<>();
+                        weather.put("main", daily.getWeather()[0].getMain());
+                        weather.put("description", daily.getWeather()[0].getDescription());
+                        weather.put("icon", daily.getWeather()[0].getIcon());
+                        dayData.put("weather", weather);
+                    }
+                    dayData.put("rain", rain(daily));
+                    dailyData[i] = dayData;
+                }
+                responseData.put("daily", dailyData);
+            }
+
+            responseData.put("city", city);
+            responseData.put("timezone", weatherData.getTimezone());
+            return new ClientResponse(true, responseData);
+        }
+
+        @SuppressWarnings("unchecked")
+        static ClientResponse detailDay(WeatherResponse weatherData, long dayTimestamp) {
+            long targetDayStart = (dayTimestamp / 86400) * 86400;
+            DailyForecast targetDay = null;
+            for (DailyForecast daily : weatherData.getDaily()) {
+                if ((daily.getTimestamp() / 86400) * 86400 == targetDayStart) {
+                    targetDay = daily;
+                    break;
+                }
+            }
+            if (targetDay == null) {
+                return new ClientResponse(false, "Day not found in forecast");
+            }
+
+            List<Map<String, Object>> hourlyList = new ArrayList<>();
+            for (HourlyForecast hourly : weatherData.getHourly()) {
+                if (hourly.getTimestamp() >= targetDayStart && hourly.getTimestamp() < targetDayStart + 86400) {
+                    Map<String, Object> hourData = new HashMap<>();
+                    hourData.put("timestamp", hourly.getTimestamp());
+                    hourData.put("temp", hourly.getTemp());
+                    hourData.put("pop", hourly.getPop());
+                    hourData.put("humidity", hourly.getHumidity());
+                    if (hourly.getWeather() != null && hourly.getWeather().length > 0) {
+                        Map<String, Object> weather = new HashMap<>();
+                        weather.put("icon", hourly.getWeather()[0].getIcon());
+                        hourData.put("weather", weather);
+                    }
+                    hourlyList.add(hourData);
+                }
+            }
+
+            Map<String, Object> responseData = new HashMap<>();
+            Map<String, Object> dayData = new HashMap<>();
+            dayData.put("timestamp", targetDay.getTimestamp());
+            dayData.put("tempMin", targetDay.getTemp().getMin());
+            dayData.put("tempMax", targetDay.getTemp().getMax());
+            dayData.put("tempAvg", targetDay.getTemp().getDay());
+            dayData.put("humidity", targetDay.getHumidity());
+            dayData.put("pop", targetDay.getPop());
+            dayData.put("rain", rain(targetDay));
+            if (targetDay.getWeather() != null && targetDay.getWeather().length > 0) {
+                Map<String, Object> weather = new HashMap<>();
+                weather.put("main", targetDay.getWeather()[0].getMain());
+                weather.put("icon", targetDay.getWeather()[0].getIcon());
+                dayData.put("weather", weather);
+            }
+            responseData.put("day", dayData);
+            responseData.put("hourly", hourlyList.toArray(new Map[0]));
+
+            DailyForecast today = weatherData.getDaily()[0];
+            Map<String, Object> todayData = new HashMap<>();
+            todayData.put("tempAvg", today.getTemp().getDay());
+            todayData.put("humidity", today.getHumidity());
+            todayData.put("rain", rain(today));
+            responseData.put("today", todayData);
+            return new ClientResponse(true, responseData);
+        }
+
+        private static Object rain(DailyForecast daily) {
+            if (daily.getRain() != null) {
+                return daily.getRain().getTotal() != null ? daily.getRain().getTotal() : 0;
+            }
+            return 0;
+        }
+    }
+}